@@ -0,0 +1,99 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.entity.User;
+import com.notedapp.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and validation throughput.
+ *
+ * validateBaseline reproduces the old code path (key re-derived and parser rebuilt per call, token
+ * parsed twice for subject and expiry); validateCold measures the shared parser on a token the cache
+ * has never seen; validateCached measures a repeated request with the same token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "JKkY7m2TsVp9FqRx4DzH8gNbC3eWjU6PcXnE5aZtLfB7vGmM2pKrQ3xS4dY7zA";
+
+    private JwtUtils jwtUtils;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils(SECRET, 86_400_000L, 10_000);
+        user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setRole(User.Role.USER);
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateBaseline() {
+        Claims subject = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        Claims expiry = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return subject.getSubject().equals(user.getUsername()) && expiry.getExpiration().getTime() > System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public Claims validateCold(ColdTokens tokens) {
+        return jwtUtils.parseClaims(tokens.next());
+    }
+
+    @Benchmark
+    public Claims validateCached() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    /**
+     * Pre-generated distinct tokens, more than the verified-token cache holds, so every lookup misses.
+     */
+    @State(Scope.Thread)
+    public static class ColdTokens {
+        private String[] tokens;
+        private int index;
+
+        @Setup
+        public void setup(JwtBenchmark benchmark) {
+            tokens = new String[50_000];
+            for (int i = 0; i < tokens.length; i++) {
+                User user = new User();
+                user.setId((long) i);
+                user.setUsername("user" + i);
+                user.setRole(User.Role.USER);
+                tokens[i] = benchmark.jwtUtils.generateToken(user);
+            }
+        }
+
+        String next() {
+            String next = tokens[index];
+            index = (index + 1) % tokens.length;
+            return next;
+        }
+    }
+}
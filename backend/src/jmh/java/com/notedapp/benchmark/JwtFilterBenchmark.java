@@ -0,0 +1,68 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.entity.User;
+import com.notedapp.security.JwtAuthenticationFilter;
+import com.notedapp.security.JwtUtils;
+import com.notedapp.security.UserPrincipalCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of JwtAuthenticationFilter: public-path matching (skipped paths) and the
+ * authenticated path with a valid bearer token in stateless-principal mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "JKkY7m2TsVp9FqRx4DzH8gNbC3eWjU6PcXnE5aZtLfB7vGmM2pKrQ3xS4dY7zA";
+
+    @Param({"/api/auth/login", "/swagger-ui/index.html", "/api/notes"})
+    public String path;
+
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setup() {
+        JwtUtils jwtUtils = new JwtUtils(SECRET, 86_400_000L, 10_000);
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark");
+        user.setRole(User.Role.USER);
+        token = jwtUtils.generateToken(user);
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        UserPrincipalCache principalCache = new UserPrincipalCache();
+        ReflectionTestUtils.setField(principalCache, "maxSize", 1000);
+        ReflectionTestUtils.setField(principalCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(principalCache, "init");
+        ReflectionTestUtils.setField(filter, "principalCache", principalCache);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(filter, "initMetrics");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+}
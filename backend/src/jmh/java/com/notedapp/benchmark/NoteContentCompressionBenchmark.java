@@ -0,0 +1,66 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.entity.NoteContentCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of compressing a note body on write and inflating it on read, with the stored size reported
+ * next to the raw UTF-8 size (storedBytes / rawBytes is the compression ratio). Content is generated
+ * from a word list rather than repeated characters so that the ratio is realistic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteContentCompressionBenchmark {
+
+    private static final String[] WORDS = {
+            "meeting", "project", "idea", "todo", "review", "budget", "travel", "recipe", "draft", "summary",
+            "release", "invoice", "garden", "reading", "workout", "design", "backend", "frontend", "holiday",
+            "the", "a", "and", "with", "for", "tomorrow", "call", "email", "ship", "fix", "plan"
+    };
+
+    @Param({"1000", "8000", "32000"})
+    public int contentLength;
+
+    private String content;
+    private byte[] stored;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+        public long rawBytes;
+        public long storedBytes;
+    }
+
+    @Setup
+    public void setup() {
+        NoteContentCodec.configure(true, 1, 200);
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(contentLength + 16);
+        while (text.length() < contentLength) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        content = text.toString();
+        stored = NoteContentCodec.compress(content);
+    }
+
+    @Benchmark
+    public byte[] compress(Sizes sizes) {
+        byte[] result = NoteContentCodec.compress(content);
+        sizes.rawBytes += content.getBytes(StandardCharsets.UTF_8).length;
+        sizes.storedBytes += result.length;
+        return result;
+    }
+
+    @Benchmark
+    public String decompress() {
+        return NoteContentCodec.decompress(stored);
+    }
+}
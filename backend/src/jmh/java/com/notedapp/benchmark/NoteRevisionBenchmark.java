@@ -0,0 +1,115 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.entity.NoteRevisionCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revision history of a long-edited note: recording a revision, with the stored size reported next to
+ * the raw UTF-8 size of that version (storedBytes / rawBytes is the storage amplification of the whole
+ * history, as the benchmark cycles through it), and rebuilding the revision furthest from its snapshot.
+ * snapshotInterval=1 stores every version as a snapshot and is the baseline. Edits replace a few words
+ * at a random place, as typing into a note does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteRevisionBenchmark {
+
+    private static final String[] WORDS = {
+            "meeting", "project", "idea", "todo", "review", "budget", "travel", "recipe", "draft", "summary",
+            "release", "invoice", "garden", "reading", "workout", "design", "backend", "frontend", "holiday",
+            "the", "a", "and", "with", "for", "tomorrow", "call", "email", "ship", "fix", "plan"
+    };
+
+    private static final int EDITS = 500;
+
+    @Param({"1000", "8000", "32000"})
+    public int contentLength;
+
+    @Param({"1", "16", "64"})
+    public int snapshotInterval;
+
+    private String[] versions;
+    private int[] snapshotOf;
+    private List<byte[]> payloads;
+    private int worstRevision;
+    private int next;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+        public long rawBytes;
+        public long storedBytes;
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        versions = new String[EDITS + 1];
+        versions[0] = words(random, contentLength);
+        for (int i = 1; i <= EDITS; i++) {
+            String previous = versions[i - 1];
+            int start = random.nextInt(previous.length());
+            int end = Math.min(previous.length(), start + random.nextInt(40));
+            versions[i] = previous.substring(0, start) + words(random, random.nextInt(60)) + previous.substring(end);
+        }
+
+        // Same policy as NoteRevisionRecorder
+        snapshotOf = new int[EDITS + 1];
+        payloads = new ArrayList<>(EDITS + 1);
+        payloads.add(NoteRevisionCodec.encodeSnapshot(versions[0]));
+        for (int i = 1; i <= EDITS; i++) {
+            byte[] payload = encode(i, snapshotOf[i - 1]);
+            snapshotOf[i] = payload == null ? i : snapshotOf[i - 1];
+            payloads.add(payload == null ? NoteRevisionCodec.encodeSnapshot(versions[i]) : payload);
+            if (i - snapshotOf[i] > worstRevision - snapshotOf[worstRevision]) {
+                worstRevision = i;
+            }
+        }
+    }
+
+    /** The delta for revision i, or null if it is to be stored as a snapshot. */
+    private byte[] encode(int i, int previousSnapshot) {
+        byte[] delta = NoteRevisionCodec.encodeDelta(versions[i - 1], versions[i]);
+        if (i - previousSnapshot >= snapshotInterval || delta.length * 2L > versions[i].length()) {
+            return null;
+        }
+        return delta;
+    }
+
+    private static String words(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public byte[] record(Sizes sizes) {
+        int i = next;
+        next = next == EDITS ? 0 : next + 1;
+        byte[] payload = i == 0 ? null : encode(i, snapshotOf[i - 1]);
+        if (payload == null) {
+            payload = NoteRevisionCodec.encodeSnapshot(versions[i]);
+        }
+        sizes.rawBytes += versions[i].getBytes(StandardCharsets.UTF_8).length;
+        sizes.storedBytes += payload.length;
+        return payload;
+    }
+
+    @Benchmark
+    public String reconstructWorstCase() {
+        return NoteRevisionCodec.reconstruct(payloads.get(snapshotOf[worstRevision]),
+                payloads.subList(snapshotOf[worstRevision] + 1, worstRevision + 1));
+    }
+}
@@ -0,0 +1,142 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.search.NoteSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One user's search over a large library: the in-memory index against the LIKE '%term%' scan that
+ * searchNotes used before (run on H2 in MySQL mode, one LIKE pair per term). Content mixes a few
+ * very common words with a large vocabulary of rare ones, so both broad and selective queries are
+ * measured. Both sides return the first page of 20 ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "meeting", "project", "idea", "todo", "review", "budget", "travel", "recipe", "draft", "summary",
+            "release", "invoice", "garden", "reading", "workout", "design", "backend", "frontend", "holiday",
+            "the", "a", "and", "with", "for", "tomorrow", "call", "email", "ship", "fix", "plan"
+    };
+    private static final int RARE_WORDS = 20000;
+    private static final long USER_ID = 1;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000"})
+    public int notes;
+
+    @Param({"invoice", "w1234 budget", "garden revi"})
+    public String query;
+
+    private NoteSearchIndex index;
+    private Connection connection;
+    private PreparedStatement likeQuery;
+
+    @Setup
+    public void setup() throws SQLException {
+        index = new NoteSearchIndex();
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 64);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:search-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS notes");
+            statement.execute("CREATE TABLE notes (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "title VARCHAR(255) NOT NULL, content TEXT NOT NULL, is_deleted BOOLEAN NOT NULL, " +
+                    "updated_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX idx_notes_user_deleted_updated ON notes (user_id, is_deleted, updated_at)");
+        }
+
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO notes (id, user_id, title, content, is_deleted, updated_at) VALUES (?, ?, ?, ?, FALSE, ?)")) {
+            for (long id = 1; id <= notes; id++) {
+                String title = words(random, 3);
+                String content = words(random, 80);
+                LocalDateTime updatedAt = now.minusSeconds(id);
+                insert.setLong(1, id);
+                insert.setLong(2, USER_ID);
+                insert.setString(3, title);
+                insert.setString(4, content);
+                insert.setObject(5, updatedAt);
+                insert.addBatch();
+                if (id % 1000 == 0) {
+                    insert.executeBatch();
+                }
+                index.index(USER_ID, id, title, content, id);
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        index.markReady();
+
+        // The derived ...TitleContainingIgnoreCase...ContentContainingIgnoreCase query, one pair per term
+        String[] terms = query.trim().split("\\s+");
+        StringBuilder sql = new StringBuilder("SELECT id FROM notes WHERE user_id = ? AND is_deleted = FALSE");
+        for (int i = 0; i < terms.length; i++) {
+            sql.append(" AND (UPPER(title) LIKE UPPER(?) OR UPPER(content) LIKE UPPER(?))");
+        }
+        sql.append(" ORDER BY updated_at DESC LIMIT ").append(PAGE_SIZE);
+        likeQuery = connection.prepareStatement(sql.toString());
+        likeQuery.setLong(1, USER_ID);
+        for (int i = 0; i < terms.length; i++) {
+            likeQuery.setString(2 + 2 * i, "%" + terms[i] + "%");
+            likeQuery.setString(3 + 2 * i, "%" + terms[i] + "%");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE notes");
+        }
+        connection.close();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(10) < 3) {
+                text.append('w').append(random.nextInt(RARE_WORDS));
+            } else {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return index.search(USER_ID, query, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Long> databaseLike() throws SQLException {
+        List<Long> ids = new ArrayList<>(PAGE_SIZE);
+        try (ResultSet rs = likeQuery.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,77 @@
+package com.notedapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.entity.Note;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-to-DTO conversion (NoteResponse.from) followed by Jackson serialization of
+ * the resulting list, the work behind every note list response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int notes;
+
+    @Param({"200", "5000"})
+    public int contentLength;
+
+    private ObjectMapper objectMapper;
+    private List<Note> entities;
+    private List<NoteResponse> responses;
+
+    @Setup
+    public void setup() throws Exception {
+        // Same configuration Spring Boot applies to its ObjectMapper
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        String content = "x".repeat(contentLength);
+        entities = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note();
+            note.setId((long) i);
+            note.setTitle("Note " + i);
+            note.setContent(content);
+            note.setCreatedAt(LocalDateTime.now());
+            note.setUpdatedAt(LocalDateTime.now());
+            note.setChangeSeq(i);
+            entities.add(note);
+        }
+        responses = convert();
+    }
+
+    @Benchmark
+    public List<NoteResponse> convert() {
+        List<NoteResponse> result = new ArrayList<>(entities.size());
+        for (Note note : entities) {
+            result.add(NoteResponse.from(note));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] convertAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(convert());
+    }
+}
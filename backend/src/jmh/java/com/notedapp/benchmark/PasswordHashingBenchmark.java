@@ -0,0 +1,55 @@
+package com.notedapp.benchmark;
+
+import com.notedapp.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost per work factor, directly and through the bounded hashing executor used in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"10", "12"})
+    public int strength;
+
+    private BCryptPasswordEncoder bcrypt;
+    private BoundedPasswordEncoder bounded;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        bcrypt = new BCryptPasswordEncoder(strength);
+        bounded = new BoundedPasswordEncoder(strength, Runtime.getRuntime().availableProcessors(), 1000,
+                60_000, 1, new SimpleMeterRegistry());
+        hash = bcrypt.encode("benchmark-password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        bounded.shutdown();
+    }
+
+    @Benchmark
+    public String encode() {
+        return bcrypt.encode("benchmark-password");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return bcrypt.matches("benchmark-password", hash);
+    }
+
+    @Benchmark
+    public boolean matchesBounded() {
+        return bounded.matches("benchmark-password", hash);
+    }
+}
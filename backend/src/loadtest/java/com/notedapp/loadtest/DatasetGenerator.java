@@ -0,0 +1,120 @@
+package com.notedapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeds the running application through its public API with synthetic users and notes.
+ *
+ * Both the number of notes per user and the note length follow a log-normal distribution around the
+ * configured medians, which gives the long tail seen in real libraries: most users have a modest number
+ * of short notes, a few power users have thousands, and some notes are very large.
+ */
+class DatasetGenerator {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private static final String[] WORDS = {
+            "meeting", "project", "idea", "todo", "review", "budget", "travel", "recipe", "draft", "summary",
+            "release", "invoice", "garden", "reading", "workout", "design", "backend", "frontend", "holiday", "notes"
+    };
+    private static final int BATCH_SIZE = 500;
+
+    private final LoadTestConfig config;
+    private final LoadTestClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random;
+
+    DatasetGenerator(LoadTestConfig config, LoadTestClient client) {
+        this(config, client, new Random(config.seed));
+    }
+
+    DatasetGenerator(LoadTestConfig config, LoadTestClient client, Random random) {
+        this.config = config;
+        this.client = client;
+        this.random = random;
+    }
+
+    List<SeededUser> generate() throws Exception {
+        List<SeededUser> users = new ArrayList<>(config.users);
+        long notes = 0;
+        for (int i = 0; i < config.users; i++) {
+            String username = String.format("lt_user_%05d", i);
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "username", username, "password", PASSWORD, "email", username + "@loadtest.local"));
+            LoadTestClient.Response response = client.post("/api/auth/register", null, body);
+            if (response.status != 200) {
+                // Already registered by an earlier run against the same database
+                response = client.post("/api/auth/login", null,
+                        objectMapper.writeValueAsString(Map.of("username", username, "password", PASSWORD)));
+            }
+            String token = objectMapper.readTree(response.body).get("token").asText();
+            SeededUser user = new SeededUser(username, token);
+
+            int noteCount = logNormal(config.medianNotesPerUser, 1.0, 1, 20_000);
+            for (int created = 0; created < noteCount; created += BATCH_SIZE) {
+                int size = Math.min(BATCH_SIZE, noteCount - created);
+                user.noteIds.addAll(createBatch(token, size));
+            }
+            notes += user.noteIds.size();
+            users.add(user);
+        }
+        System.out.printf("Seeded %d users with %d notes%n", users.size(), notes);
+        return users;
+    }
+
+    private List<Long> createBatch(String token, int size) throws Exception {
+        List<Map<String, String>> operations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            operations.add(Map.of("type", "CREATE", "title", title(), "content", content()));
+        }
+        LoadTestClient.Response response = client.post("/api/notes/batch", token,
+                objectMapper.writeValueAsString(Map.of("operations", operations)));
+        List<Long> ids = new ArrayList<>(size);
+        for (JsonNode result : objectMapper.readTree(response.body)) {
+            JsonNode note = result.get("note");
+            if (note != null && !note.isNull()) {
+                ids.add(note.get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    String title() {
+        return word() + " " + word() + " " + random.nextInt(10_000);
+    }
+
+    String content() {
+        int length = logNormal(config.medianContentLength, 1.2, 10, 60_000);
+        StringBuilder content = new StringBuilder(length + 16);
+        while (content.length() < length) {
+            content.append(word()).append(random.nextInt(8) == 0 ? ".\n" : " ");
+        }
+        return content.toString();
+    }
+
+    String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private int logNormal(int median, double sigma, int min, int max) {
+        double value = median * Math.exp(sigma * random.nextGaussian());
+        return (int) Math.max(min, Math.min(max, Math.round(value)));
+    }
+
+    static class SeededUser {
+        final String username;
+        volatile String token;
+        final List<Long> noteIds = new ArrayList<>();
+
+        SeededUser(String username, String token) {
+            this.username = username;
+            this.token = token;
+        }
+    }
+}
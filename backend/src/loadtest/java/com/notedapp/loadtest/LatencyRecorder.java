@@ -0,0 +1,55 @@
+package com.notedapp.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw latency samples for a single operation so exact percentiles can be reported.
+ */
+class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    synchronized void record(long nanos, boolean error) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors);
+    }
+
+    static class Snapshot {
+        final long count;
+        final long errors;
+        final double p50Ms;
+        final double p90Ms;
+        final double p99Ms;
+        final double maxMs;
+
+        Snapshot(long[] sorted, long errors) {
+            this.count = sorted.length;
+            this.errors = errors;
+            this.p50Ms = percentile(sorted, 0.50);
+            this.p90Ms = percentile(sorted, 0.90);
+            this.p99Ms = percentile(sorted, 0.99);
+            this.maxMs = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0;
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
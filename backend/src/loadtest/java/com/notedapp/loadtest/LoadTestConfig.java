@@ -0,0 +1,58 @@
+package com.notedapp.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from -Dloadtest.* system properties.
+ */
+public class LoadTestConfig {
+
+    final String baseUrl = property("loadtest.base-url", "http://localhost:18080");
+    final long seed = Long.parseLong(property("loadtest.seed", "42"));
+
+    // Dataset
+    final int users = Integer.parseInt(property("loadtest.users", "50"));
+    final int medianNotesPerUser = Integer.parseInt(property("loadtest.notes-per-user", "200"));
+    final int medianContentLength = Integer.parseInt(property("loadtest.content-length", "600"));
+
+    // Traffic
+    final int concurrency = Integer.parseInt(property("loadtest.concurrency", "32"));
+    final Duration warmup = Duration.ofSeconds(Long.parseLong(property("loadtest.warmup-seconds", "10")));
+    final Duration duration = Duration.ofSeconds(Long.parseLong(property("loadtest.duration-seconds", "60")));
+
+    // Relative operation weights
+    final Map<Operation, Integer> mix = new LinkedHashMap<>();
+
+    final String reportFile = property("loadtest.report", "target/loadtest-report.json");
+    final String thresholdsFile = property("loadtest.thresholds", "src/loadtest/resources/loadtest-thresholds.properties");
+
+    LoadTestConfig() {
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, Integer.parseInt(property("loadtest.mix." + operation.key, String.valueOf(operation.defaultWeight))));
+        }
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    enum Operation {
+        LOGIN("login", 5),
+        LIST("list", 40),
+        GET("get", 25),
+        SEARCH("search", 15),
+        CREATE("create", 10),
+        UPDATE("update", 5);
+
+        final String key;
+        final int defaultWeight;
+
+        Operation(String key, int defaultWeight) {
+            this.key = key;
+            this.defaultWeight = defaultWeight;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.notedapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.notedapp.loadtest.DatasetGenerator.SeededUser;
+import com.notedapp.loadtest.LoadTestConfig.Operation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test driver.
+ *
+ * "run" seeds a synthetic dataset, drives a weighted mix of login/list/get/search/create/update traffic
+ * against a running instance and writes per-operation throughput and latency percentiles to a JSON report.
+ * "check" compares that report with the thresholds file and exits non-zero on any violation, so the
+ * loadtest Maven profile fails the build when performance regresses.
+ */
+public class LoadTestRunner {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "run";
+        LoadTestConfig config = new LoadTestConfig();
+        if ("check".equals(mode)) {
+            System.exit(check(config) ? 0 : 1);
+        }
+        run(config);
+    }
+
+    private static void run(LoadTestConfig config) throws Exception {
+        LoadTestClient client = new LoadTestClient(config.baseUrl);
+        List<SeededUser> users = new DatasetGenerator(config, client).generate();
+
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup.toNanos();
+        long end = measureFrom + config.duration.toNanos();
+        System.out.printf("Running %d workers for %ds (+%ds warmup) against %s%n",
+                config.concurrency, config.duration.getSeconds(), config.warmup.getSeconds(), config.baseUrl);
+
+        ExecutorService workers = Executors.newFixedThreadPool(config.concurrency);
+        CountDownLatch done = new CountDownLatch(config.concurrency);
+        for (int i = 0; i < config.concurrency; i++) {
+            Worker worker = new Worker(config, client, users, recorders, new Random(config.seed + i), measureFrom, end);
+            workers.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        writeReport(config, recorders);
+    }
+
+    private static void writeReport(LoadTestConfig config, Map<Operation, LatencyRecorder> recorders) throws Exception {
+        double seconds = config.duration.toMillis() / 1000.0;
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("users", config.users);
+        report.put("concurrency", config.concurrency);
+        report.put("durationSeconds", seconds);
+        ObjectNode operations = report.putObject("operations");
+
+        long totalCount = 0;
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            LatencyRecorder.Snapshot snapshot = entry.getValue().snapshot();
+            double throughput = snapshot.count / seconds;
+            totalCount += snapshot.count;
+
+            ObjectNode node = operations.putObject(entry.getKey().key);
+            node.put("count", snapshot.count);
+            node.put("errors", snapshot.errors);
+            node.put("errorRate", snapshot.count == 0 ? 0 : (double) snapshot.errors / snapshot.count);
+            node.put("throughput", throughput);
+            node.put("p50Ms", snapshot.p50Ms);
+            node.put("p90Ms", snapshot.p90Ms);
+            node.put("p99Ms", snapshot.p99Ms);
+            node.put("maxMs", snapshot.maxMs);
+
+            System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", entry.getKey().key,
+                    snapshot.count, snapshot.errors, throughput, snapshot.p50Ms, snapshot.p90Ms, snapshot.p99Ms, snapshot.maxMs);
+        }
+        report.put("throughput", totalCount / seconds);
+        System.out.printf("%-8s %10d %8s %10.1f%n", "total", totalCount, "", totalCount / seconds);
+
+        File file = new File(config.reportFile);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+        System.out.println("Report written to " + file.getPath());
+    }
+
+    /**
+     * Thresholds are "<op>.<metric>" keys, e.g. "list.p99Ms=250" (upper bound) or "list.min-throughput=100"
+     * and "total.min-throughput=500" (lower bounds). Metrics without a threshold are not checked.
+     */
+    private static boolean check(LoadTestConfig config) throws Exception {
+        JsonNode report = objectMapper.readTree(new File(config.reportFile));
+        Properties thresholds = new Properties();
+        try (InputStream in = new FileInputStream(config.thresholdsFile)) {
+            thresholds.load(in);
+        }
+
+        List<String> violations = new ArrayList<>();
+        for (String key : thresholds.stringPropertyNames()) {
+            double limit = Double.parseDouble(thresholds.getProperty(key).trim());
+            int dot = key.indexOf('.');
+            String scope = key.substring(0, dot);
+            String metric = key.substring(dot + 1);
+
+            JsonNode node = "total".equals(scope) ? report : report.path("operations").path(scope);
+            if (metric.equals("min-throughput")) {
+                double actual = node.path("throughput").asDouble();
+                if (actual < limit) {
+                    violations.add(String.format("%s: %.1f req/s is below %.1f", key, actual, limit));
+                }
+            } else {
+                double actual = node.path(metric).asDouble();
+                if (actual > limit) {
+                    violations.add(String.format("%s: %.3f exceeds %.3f", key, actual, limit));
+                }
+            }
+        }
+
+        if (violations.isEmpty()) {
+            System.out.println("Load test within thresholds (" + thresholds.size() + " checked)");
+            return true;
+        }
+        System.err.println("Load test thresholds violated:");
+        violations.forEach(v -> System.err.println("  " + v));
+        return false;
+    }
+
+    private static class Worker implements Runnable {
+
+        private final LoadTestConfig config;
+        private final LoadTestClient client;
+        private final List<SeededUser> users;
+        private final Map<Operation, LatencyRecorder> recorders;
+        private final Random random;
+        private final long measureFrom;
+        private final long end;
+        private final Operation[] weighted;
+
+        Worker(LoadTestConfig config, LoadTestClient client, List<SeededUser> users,
+               Map<Operation, LatencyRecorder> recorders, Random random, long measureFrom, long end) {
+            this.config = config;
+            this.client = client;
+            this.users = users;
+            this.recorders = recorders;
+            this.random = random;
+            this.measureFrom = measureFrom;
+            this.end = end;
+
+            List<Operation> slots = new ArrayList<>();
+            config.mix.forEach((operation, weight) -> {
+                for (int i = 0; i < weight; i++) {
+                    slots.add(operation);
+                }
+            });
+            this.weighted = slots.toArray(new Operation[0]);
+        }
+
+        @Override
+        public void run() {
+            DatasetGenerator text = new DatasetGenerator(config, client, random);
+            while (true) {
+                long started = System.nanoTime();
+                if (started >= end) {
+                    return;
+                }
+                Operation operation = weighted[random.nextInt(weighted.length)];
+                SeededUser user = users.get(random.nextInt(users.size()));
+                boolean error;
+                try {
+                    error = execute(operation, user, text) >= 400;
+                } catch (Exception e) {
+                    error = true;
+                }
+                if (started >= measureFrom) {
+                    recorders.get(operation).record(System.nanoTime() - started, error);
+                }
+            }
+        }
+
+        private int execute(Operation operation, SeededUser user, DatasetGenerator text) throws Exception {
+            switch (operation) {
+                case LOGIN: {
+                    LoadTestClient.Response response = client.post("/api/auth/login", null, objectMapper.writeValueAsString(
+                            Map.of("username", user.username, "password", DatasetGenerator.PASSWORD)));
+                    if (response.status == 200) {
+                        user.token = objectMapper.readTree(response.body).get("token").asText();
+                    }
+                    return response.status;
+                }
+                case LIST:
+                    return client.get("/api/notes/summaries?limit=50", user.token).status;
+                case GET: {
+                    Long id = randomNote(user);
+                    return id == null ? 200 : client.get("/api/notes/" + id, user.token).status;
+                }
+                case SEARCH:
+                    return client.get("/api/notes/search?size=20&keyword="
+                            + URLEncoder.encode(text.word(), StandardCharsets.UTF_8), user.token).status;
+                case CREATE: {
+                    LoadTestClient.Response response = client.post("/api/notes", user.token, objectMapper.writeValueAsString(
+                            Map.of("title", text.title(), "content", text.content())));
+                    if (response.status == 200) {
+                        long id = objectMapper.readTree(response.body).get("id").asLong();
+                        synchronized (user.noteIds) {
+                            user.noteIds.add(id);
+                        }
+                    }
+                    return response.status;
+                }
+                case UPDATE: {
+                    Long id = randomNote(user);
+                    return id == null ? 200 : client.put("/api/notes/" + id, user.token, objectMapper.writeValueAsString(
+                            Map.of("title", text.title(), "content", text.content()))).status;
+                }
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        }
+
+        private Long randomNote(SeededUser user) {
+            synchronized (user.noteIds) {
+                return user.noteIds.isEmpty() ? null : user.noteIds.get(random.nextInt(user.noteIds.size()));
+            }
+        }
+    }
+}
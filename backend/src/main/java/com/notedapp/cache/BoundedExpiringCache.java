@@ -0,0 +1,99 @@
+package com.notedapp.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Small thread-safe cache with a hard size bound and per-entry expiry.
+ *
+ * Expired entries are dropped lazily on read and in bulk when the cache fills up. If it is still full
+ * after that, an arbitrary tenth of the entries is evicted so that inserts stay cheap under pressure.
+ */
+public class BoundedExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    public BoundedExpiringCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public V get(K key, long ttlMillis, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value, System.currentTimeMillis() + ttlMillis);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    /**
+     * Stores the value unless a live entry exists, atomically. Returns the live value, or null if stored.
+     */
+    public V putIfAbsent(K key, V value, long expiresAtMillis) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        long now = System.currentTimeMillis();
+        Entry<V> created = new Entry<>(value, expiresAtMillis);
+        Entry<V> current = entries.compute(key, (k, existing) ->
+                existing == null || existing.expiresAt <= now ? created : existing);
+        return current == created ? null : current.value;
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        int toRemove = entries.size() - (maxSize - maxSize / 10);
+        Iterator<K> keys = entries.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
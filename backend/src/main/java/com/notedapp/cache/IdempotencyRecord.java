@@ -0,0 +1,19 @@
+package com.notedapp.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * What an {@link IdempotencyStore} keeps per key: the request fingerprint and, once the first
+ * execution has finished, its serialized response. A null response means it is still running.
+ */
+@Data
+@AllArgsConstructor
+public class IdempotencyRecord {
+    private String fingerprint;
+    private String responseJson;
+
+    public boolean isPending() {
+        return responseJson == null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.notedapp.cache;
+
+/**
+ * Keeps the outcome of requests made with an Idempotency-Key so that retries can be replayed.
+ *
+ * A key is first claimed with a pending record that only lives for a short lease, so a crashed
+ * execution does not block its key for the full retention period, and is then completed with the
+ * response or released if the execution failed.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a new execution. Returns null if claimed, otherwise the existing live record.
+     */
+    IdempotencyRecord claim(String key, String fingerprint, long leaseMillis);
+
+    void complete(String key, IdempotencyRecord record, long ttlMillis);
+
+    void release(String key);
+}
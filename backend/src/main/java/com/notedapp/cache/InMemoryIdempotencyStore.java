@@ -0,0 +1,35 @@
+package com.notedapp.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Idempotency store for a single instance, bounded by {@code notes.idempotency.max-entries}.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final BoundedExpiringCache<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStore(@Value("${notes.idempotency.max-entries:100000}") int maxEntries) {
+        this.records = new BoundedExpiringCache<>(maxEntries);
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint, long leaseMillis) {
+        return records.putIfAbsent(key, new IdempotencyRecord(fingerprint, null),
+                System.currentTimeMillis() + leaseMillis);
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record, long ttlMillis) {
+        records.put(key, record, System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Override
+    public void release(String key) {
+        records.invalidate(key);
+    }
+}
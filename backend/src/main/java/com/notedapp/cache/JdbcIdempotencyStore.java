@@ -0,0 +1,77 @@
+package com.notedapp.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Idempotency store shared by all instances, backed by the idempotency_keys table.
+ *
+ * The primary key on idem_key makes the claim atomic across instances: the INSERT of the pending row
+ * either succeeds or hits the existing row, which is then returned unless it has expired.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (idem_key, fingerprint, response_json, expires_at) VALUES (?, ?, NULL, ?)";
+    private static final String SELECT_SQL =
+            "SELECT fingerprint, response_json FROM idempotency_keys WHERE idem_key = ? AND expires_at > ?";
+    private static final String DELETE_EXPIRED_KEY_SQL =
+            "DELETE FROM idempotency_keys WHERE idem_key = ? AND expires_at <= ?";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_keys SET response_json = ?, expires_at = ? WHERE idem_key = ?";
+    private static final String RELEASE_SQL =
+            "DELETE FROM idempotency_keys WHERE idem_key = ? AND response_json IS NULL";
+    private static final String CLEANUP_SQL = "DELETE FROM idempotency_keys WHERE expires_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        // One retry: the first attempt may collide with an expired row that has not been cleaned up yet
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, key, fingerprint, new Timestamp(now + leaseMillis));
+                return null;
+            } catch (DuplicateKeyException e) {
+                List<IdempotencyRecord> existing = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new IdempotencyRecord(rs.getString("fingerprint"), rs.getString("response_json")),
+                        key, new Timestamp(now));
+                if (!existing.isEmpty()) {
+                    return existing.get(0);
+                }
+                jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, key, new Timestamp(now));
+            }
+        }
+        // Lost the race for an expired key twice; report it as in flight so the client retries
+        return new IdempotencyRecord(fingerprint, null);
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord record, long ttlMillis) {
+        jdbcTemplate.update(COMPLETE_SQL, record.getResponseJson(),
+                new Timestamp(System.currentTimeMillis() + ttlMillis), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update(RELEASE_SQL, key);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.idempotency.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        jdbcTemplate.update(CLEANUP_SQL, new Timestamp(System.currentTimeMillis()));
+    }
+}
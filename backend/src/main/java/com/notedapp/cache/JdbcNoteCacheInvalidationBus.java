@@ -0,0 +1,134 @@
+package com.notedapp.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-instance bus backed by the note_cache_invalidations table.
+ *
+ * Publishing inserts a row; every instance polls for new rows and hands them to its subscribers.
+ * Caches across instances are therefore coherent within one poll interval. Rows older than the
+ * retention are deleted by whichever instance gets there first.
+ *
+ * AUTO_INCREMENT ids are assigned at insert but become visible at commit, so a row can appear after
+ * rows with higher ids have already been read. Polling therefore does not start after the highest id
+ * seen: it re-reads every id above a floor that trails the ids seen by the reorder window, and skips
+ * the rows it has already delivered. An id only drops below the floor once it has been seen for a
+ * whole window, so a late row is missed only if its insert commits more than a window after it
+ * took its id.
+ */
+@Component
+@ConditionalOnProperty(name = "notes.cache.invalidation-bus", havingValue = "jdbc")
+public class JdbcNoteCacheInvalidationBus implements NoteCacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcNoteCacheInvalidationBus.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO note_cache_invalidations (origin, scope, user_id, note_id, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final int POLL_BATCH_SIZE = 1000;
+    private static final String POLL_SQL = "SELECT id, origin, scope, user_id, note_id FROM note_cache_invalidations "
+            + "WHERE id > ? ORDER BY id LIMIT " + POLL_BATCH_SIZE;
+    private static final String CLEANUP_SQL = "DELETE FROM note_cache_invalidations WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMinutes;
+    private final long reorderWindowMillis;
+    private final List<Consumer<NoteCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    // Every id at or below the floor has been delivered or given up on; above it, delivered ids and
+    // when they were first seen. Only touched by poll(), which is synchronized
+    private long floorId;
+    private final TreeMap<Long, Long> delivered = new TreeMap<>();
+
+    public JdbcNoteCacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                        @Value("${notes.cache.jdbc-bus.retention-minutes:60}") long retentionMinutes,
+                                        @Value("${notes.cache.jdbc-bus.reorder-window-ms:10000}") long reorderWindowMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMinutes = retentionMinutes;
+        this.reorderWindowMillis = reorderWindowMillis;
+        // Messages from before this instance started refer to caches it never had
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM note_cache_invalidations", Long.class);
+        this.floorId = maxId == null ? 0 : maxId;
+    }
+
+    @Override
+    public void publish(NoteCacheInvalidation invalidation) {
+        jdbcTemplate.update(INSERT_SQL, invalidation.getOrigin(), invalidation.getScope().name(),
+                invalidation.getUserId(), invalidation.getNoteId(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Override
+    public void subscribe(Consumer<NoteCacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${notes.cache.jdbc-bus.poll-interval-ms:500}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        try {
+            long after = floorId;
+            int read;
+            do {
+                long[] lastId = {after};
+                int[] rows = {0};
+                jdbcTemplate.query(POLL_SQL, rs -> {
+                    long id = rs.getLong("id");
+                    lastId[0] = id;
+                    rows[0]++;
+                    if (delivered.putIfAbsent(id, now) != null) {
+                        return;
+                    }
+                    long noteId = rs.getLong("note_id");
+                    boolean wholeUser = rs.wasNull();
+                    deliver(new NoteCacheInvalidation(rs.getString("origin"),
+                            NoteCacheInvalidation.Scope.valueOf(rs.getString("scope")), rs.getLong("user_id"),
+                            wholeUser ? null : noteId));
+                }, after);
+                after = lastId[0];
+                read = rows[0];
+            } while (read == POLL_BATCH_SIZE);
+            advanceFloor(now);
+        } catch (Exception e) {
+            // The floor stays put, so rows committed meanwhile are still read by the next poll
+            logger.warn("Could not poll note cache invalidations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Raises the floor past every id delivered at least a reorder window ago. Gaps below the new floor
+     * (rolled back inserts, or commits later than the window) are given up on.
+     */
+    private void advanceFloor(long now) {
+        long expired = now - reorderWindowMillis;
+        for (Map.Entry<Long, Long> entry : delivered.entrySet()) {
+            if (entry.getValue() <= expired) {
+                floorId = Math.max(floorId, entry.getKey());
+            }
+        }
+        delivered.headMap(floorId, true).clear();
+    }
+
+    private void deliver(NoteCacheInvalidation invalidation) {
+        for (Consumer<NoteCacheInvalidation> listener : listeners) {
+            listener.accept(invalidation);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notes.cache.jdbc-bus.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        jdbcTemplate.update(CLEANUP_SQL, Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+    }
+}
@@ -0,0 +1,30 @@
+package com.notedapp.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus for a single instance, or for several NoteCache instances sharing one JVM (tests).
+ */
+@Component
+@ConditionalOnProperty(name = "notes.cache.invalidation-bus", havingValue = "local", matchIfMissing = true)
+public class LocalNoteCacheInvalidationBus implements NoteCacheInvalidationBus {
+
+    private final List<Consumer<NoteCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(NoteCacheInvalidation invalidation) {
+        for (Consumer<NoteCacheInvalidation> listener : listeners) {
+            listener.accept(invalidation);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<NoteCacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,356 @@
+package com.notedapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-user cache of note reads, bounded by the estimated memory of the cached values and by a TTL.
+ *
+ * Entries are grouped by user so that a write can drop exactly what it affects: the note itself and
+ * the user's list pages, summaries and list version. Writes go through {@link #invalidate} after they
+ * commit, which also publishes the invalidation on the {@link NoteCacheInvalidationBus} for other
+ * instances.
+ *
+ * A read that started before an invalidation must not store what it loaded afterwards, or it would
+ * reinstate the value the write just replaced. Every invalidation therefore takes a fresh token and
+ * records it per user; loads remember the token current when they began and are only stored if no
+ * newer invalidation has been recorded for that user. Recording a mark and storing a load both run
+ * under the user's map entry, so the check and the store cannot straddle an invalidation. Invalidations received from other instances
+ * additionally hold off caching for that user for a short window, so a load served by a lagging read
+ * replica cannot repopulate the cache with the old row.
+ *
+ * When the estimated size exceeds the budget, the least recently read users are dropped as a whole
+ * until usage falls below 90% of it.
+ */
+@Component
+public class NoteCache {
+
+    // Rough per-entry overhead of the map node, key and wrapper objects
+    static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<Long, UserEntries> users = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final BoundedExpiringCache<Long, InvalidationMark> marks;
+
+    private final NoteCacheInvalidationBus bus;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final long remoteHoldMillis;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> hitCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> missCounters = new ConcurrentHashMap<>();
+    private final Counter evictedUsers;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+    private final Counter rejectedStores;
+
+    public NoteCache(NoteCacheInvalidationBus bus,
+                     MeterRegistry meterRegistry,
+                     @Value("${notes.cache.enabled:true}") boolean enabled,
+                     @Value("${notes.cache.max-bytes:67108864}") long maxBytes,
+                     @Value("${notes.cache.ttl-seconds:60}") long ttlSeconds,
+                     @Value("${notes.cache.remote-invalidation-hold-ms:2000}") long remoteHoldMillis,
+                     @Value("${notes.cache.max-tracked-invalidations:100000}") int maxTrackedInvalidations) {
+        this.bus = bus;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled && maxBytes > 0;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.remoteHoldMillis = remoteHoldMillis;
+        this.marks = new BoundedExpiringCache<>(maxTrackedInvalidations);
+
+        evictedUsers = Counter.builder("krabbel.notes.cache.evictions")
+                .description("Users whose cached notes were dropped to stay within the memory budget")
+                .register(meterRegistry);
+        localInvalidations = Counter.builder("krabbel.notes.cache.invalidations")
+                .description("Note cache invalidations applied")
+                .tag("source", "local")
+                .register(meterRegistry);
+        remoteInvalidations = Counter.builder("krabbel.notes.cache.invalidations")
+                .description("Note cache invalidations applied")
+                .tag("source", "remote")
+                .register(meterRegistry);
+        rejectedStores = Counter.builder("krabbel.notes.cache.rejected.stores")
+                .description("Loaded values not cached because the user was invalidated during the load")
+                .register(meterRegistry);
+        Gauge.builder("krabbel.notes.cache.size", totalBytes, AtomicLong::get)
+                .description("Estimated memory held by cached note reads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("krabbel.notes.cache.users", users, Map::size)
+                .description("Users with cached note reads")
+                .register(meterRegistry);
+
+        bus.subscribe(this::onInvalidation);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the invalidation was published by this instance.
+     */
+    public boolean isLocal(NoteCacheInvalidation invalidation) {
+        return instanceId.equals(invalidation.getOrigin());
+    }
+
+    /**
+     * Returns the cached value for the user's key, or loads, stores and returns it.
+     *
+     * The cache keeps its own copy of a loaded value and hands out a fresh copy on every hit, so
+     * callers may modify what they get without affecting the cache or each other.
+     *
+     * @param kind    metric tag describing the read (note, page, summaries, version)
+     * @param weigher estimated size in bytes of a loaded value, excluding per-entry overhead
+     * @param copier  deep enough copy of a value that no mutable state is shared; identity for immutable values
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Long userId, String key, String kind, ToLongFunction<V> weigher, UnaryOperator<V> copier,
+                     Supplier<V> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long now = System.currentTimeMillis();
+        UserEntries entries = users.get(userId);
+        if (entries != null) {
+            Cached cached = entries.values.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                entries.lastReadAt = now;
+                counter(hitCounters, "hit", kind).increment();
+                return copier.apply((V) cached.value);
+            }
+        }
+        counter(missCounters, "miss", kind).increment();
+
+        long token = tokens.get();
+        V value = loader.get();
+        if (value != null) {
+            store(userId, key, copier.apply(value), weigher.applyAsLong(value) + ENTRY_OVERHEAD_BYTES, token);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value without loading it, or null. This is the cached instance itself: read
+     * from it, but never modify it or hand it out.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V peek(Long userId, String key) {
+        if (!enabled) {
+            return null;
+        }
+        UserEntries entries = users.get(userId);
+        if (entries == null) {
+            return null;
+        }
+        Cached cached = entries.values.get(key);
+        return cached != null && cached.expiresAt > System.currentTimeMillis() ? (V) cached.value : null;
+    }
+
+    /**
+     * Drops the affected entries here and publishes the invalidation to the other instances.
+     * Call only once the write is committed. Invalidations are published even with the cache
+     * disabled, since the other instances' search indexes follow them too.
+     */
+    public void invalidate(NoteCacheInvalidation.Scope scope, Long userId, Long noteId) {
+        NoteCacheInvalidation invalidation = new NoteCacheInvalidation(instanceId, scope, userId, noteId);
+        if (enabled) {
+            apply(invalidation, 0);
+            localInvalidations.increment();
+        }
+        bus.publish(invalidation);
+    }
+
+    public void invalidateUser(Long userId) {
+        invalidate(NoteCacheInvalidation.Scope.USER, userId, null);
+    }
+
+    public void clear() {
+        users.keySet().forEach(this::removeUser);
+    }
+
+    public long estimatedBytes() {
+        return totalBytes.get();
+    }
+
+    private void onInvalidation(NoteCacheInvalidation invalidation) {
+        if (!enabled || instanceId.equals(invalidation.getOrigin())) {
+            return;
+        }
+        apply(invalidation, System.currentTimeMillis() + remoteHoldMillis);
+        remoteInvalidations.increment();
+    }
+
+    private void apply(NoteCacheInvalidation invalidation, long holdUntil) {
+        Long userId = invalidation.getUserId();
+        long markTtl = Math.max(ttlMillis, remoteHoldMillis);
+        users.compute(userId, (id, entries) -> {
+            long token = tokens.incrementAndGet();
+            marks.put(userId, new InvalidationMark(token, holdUntil), System.currentTimeMillis() + markTtl);
+            if (entries == null) {
+                return null;
+            }
+            switch (invalidation.getScope()) {
+                case USER:
+                    entries.clear();
+                    return null;
+                case NOTE:
+                    entries.remove(noteKey(invalidation.getNoteId()));
+                    entries.removeLists();
+                    return entries;
+                default:
+                    entries.removeLists();
+                    return entries;
+            }
+        });
+    }
+
+    private void store(Long userId, String key, Object value, long weight, long token) {
+        long now = System.currentTimeMillis();
+        boolean[] stored = new boolean[1];
+        users.compute(userId, (id, entries) -> {
+            InvalidationMark mark = marks.get(userId);
+            if (mark != null && (mark.token > token || mark.holdUntil > now)) {
+                return entries;
+            }
+            UserEntries target = entries != null ? entries : new UserEntries();
+            target.lastReadAt = now;
+            target.put(key, new Cached(value, weight, now + ttlMillis));
+            stored[0] = true;
+            return target;
+        });
+        if (!stored[0]) {
+            rejectedStores.increment();
+            return;
+        }
+        if (totalBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // Another thread is already evicting; this insert's overshoot is covered by its 10% headroom
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            users.values().forEach(entries -> entries.removeExpired(now));
+            long target = maxBytes - maxBytes / 10;
+            if (totalBytes.get() <= target) {
+                return;
+            }
+            List<Map.Entry<Long, UserEntries>> byLastRead = new ArrayList<>(users.entrySet());
+            byLastRead.sort(Comparator.comparingLong(e -> e.getValue().lastReadAt));
+            for (Map.Entry<Long, UserEntries> entry : byLastRead) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                removeUser(entry.getKey());
+                evictedUsers.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void removeUser(Long userId) {
+        UserEntries removed = users.remove(userId);
+        if (removed != null) {
+            removed.clear();
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String result, String kind) {
+        return counters.computeIfAbsent(kind, k -> Counter.builder("krabbel.notes.cache.requests")
+                .description("Note cache lookups")
+                .tag("result", result)
+                .tag("kind", k)
+                .register(meterRegistry));
+    }
+
+    public static String noteKey(Long noteId) {
+        return "note:" + noteId;
+    }
+
+    public static String listKey(String list, String cursor, int limit) {
+        return "list:" + list + ":" + (cursor == null ? "" : cursor) + ":" + limit;
+    }
+
+    private final class UserEntries {
+        final Map<String, Cached> values = new ConcurrentHashMap<>();
+        volatile long lastReadAt;
+
+        void put(String key, Cached cached) {
+            Cached previous = values.put(key, cached);
+            totalBytes.addAndGet(cached.weight - (previous == null ? 0 : previous.weight));
+        }
+
+        void remove(String key) {
+            Cached removed = values.remove(key);
+            if (removed != null) {
+                totalBytes.addAndGet(-removed.weight);
+            }
+        }
+
+        void removeLists() {
+            values.keySet().stream()
+                    .filter(key -> key.startsWith("list:"))
+                    .forEach(this::remove);
+        }
+
+        void removeExpired(long now) {
+            values.entrySet().stream()
+                    .filter(e -> e.getValue().expiresAt <= now)
+                    .map(Map.Entry::getKey)
+                    .forEach(this::remove);
+        }
+
+        void clear() {
+            values.keySet().forEach(this::remove);
+        }
+    }
+
+    private static final class Cached {
+        final Object value;
+        final long weight;
+        final long expiresAt;
+
+        Cached(Object value, long weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class InvalidationMark {
+        final long token;
+        final long holdUntil;
+
+        InvalidationMark(long token, long holdUntil) {
+            this.token = token;
+            this.holdUntil = holdUntil;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.notedapp.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A message telling every NoteCache to drop part of one user's cached reads. The search indexes of
+ * the other instances follow the same messages (see NoteSearchIndexSynchronizer).
+ */
+@Data
+@AllArgsConstructor
+public class NoteCacheInvalidation {
+
+    public enum Scope {
+        // List pages, summaries and the list version (a note was created; noteId names it)
+        LISTS,
+        // One note plus the lists it appears in (a note was updated or deleted)
+        NOTE,
+        // Everything cached for the user (batches, purges)
+        USER
+    }
+
+    // Instance that published the message, so it can skip its own invalidations
+    private String origin;
+    private Scope scope;
+    private Long userId;
+    private Long noteId;
+}
@@ -0,0 +1,16 @@
+package com.notedapp.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries note cache invalidations between application instances.
+ *
+ * Implementations deliver every published message to every subscriber, including ones in the
+ * publishing instance; subscribers use {@link NoteCacheInvalidation#getOrigin()} to skip their own.
+ */
+public interface NoteCacheInvalidationBus {
+
+    void publish(NoteCacheInvalidation invalidation);
+
+    void subscribe(Consumer<NoteCacheInvalidation> listener);
+}
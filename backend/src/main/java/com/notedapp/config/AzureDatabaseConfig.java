@@ -2,13 +2,18 @@ package com.notedapp.config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
 import javax.sql.DataSource;
 
@@ -19,6 +24,9 @@ import javax.sql.DataSource;
  * in the production environment. It reads configuration from environment variables:
  * AZURE_MYSQL_URL, AZURE_MYSQL_USERNAME, and AZURE_MYSQL_PASSWORD.
  * 
+ * If DATASOURCE_REPLICA_URL (datasource.replica.url) is set, read-only transactions are routed to
+ * that read replica; see ReplicaRoutingDataSource.
+ * 
  * Note: This class is only active when the "prod" profile is enabled.
  */
 @Configuration
@@ -35,37 +43,119 @@ public class AzureDatabaseConfig {
     @Value("${AZURE_MYSQL_PASSWORD}")
     private String password;
     
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+    
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    private long connectionTimeout;
+    
+    // Optional read replica, e.g. an Azure MySQL read replica; enables read/write routing when set
+    @Value("${datasource.replica.url:}")
+    private String replicaJdbcUrl;
+    
+    @Value("${datasource.replica.username:${AZURE_MYSQL_USERNAME}}")
+    private String replicaUsername;
+    
+    @Value("${datasource.replica.password:${AZURE_MYSQL_PASSWORD}}")
+    private String replicaPassword;
+    
+    @Value("${datasource.replica.max-lag-ms:1000}")
+    private long replicaMaxLagMillis;
+    
+    @Value("${datasource.replica.heartbeat-interval-ms:250}")
+    private long replicaHeartbeatMillis;
+    
+    @Value("${datasource.replica.read-your-writes-ms:30000}")
+    private long readYourWritesMillis;
+    
+    @Value("${datasource.replica.read-your-writes-max-users:100000}")
+    private int readYourWritesMaxUsers;
+    
+    /**
+     * Creates the HikariCP pool for the primary (read-write) Azure MySQL server
+     * 
+     * @return The primary connection pool
+     */
+    @Bean
+    public HikariDataSource primaryDataSource() {
+        logger.info("Initializing production DataSource with Azure MySQL configuration");
+        HikariDataSource dataSource = createPool(jdbcUrl, username, password, "KrabbelHikariPool", false);
+        logger.debug("Azure MySQL JDBC URL: {}", jdbcUrl);
+        return dataSource;
+    }
+    
+    /**
+     * Creates the HikariCP pool for the read replica, only when datasource.replica.url is set
+     * 
+     * @return The replica connection pool
+     */
+    @Bean
+    @ConditionalOnProperty("datasource.replica.url")
+    public HikariDataSource replicaDataSource() {
+        logger.info("Initializing read replica DataSource");
+        HikariDataSource dataSource = createPool(replicaJdbcUrl, replicaUsername, replicaPassword, "KrabbelReplicaPool", true);
+        logger.debug("Replica JDBC URL: {}", replicaJdbcUrl);
+        return dataSource;
+    }
+    
+    @Bean
+    @ConditionalOnProperty("datasource.replica.url")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, replicaMaxLagMillis, replicaHeartbeatMillis,
+                meterRegistry);
+    }
+    
     /**
-     * Creates and configures the production DataSource with HikariCP
+     * The DataSource used by JPA, Flyway and JdbcTemplate: the primary pool, or, with a replica
+     * configured, a router that sends read-only transactions to the replica
      * 
      * @return A configured DataSource for the production environment
      */
     @Bean
     @Primary
-    public DataSource dataSource() {
-        logger.info("Initializing production DataSource with Azure MySQL configuration");
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            return primaryDataSource;
+        }
+        logger.info("Routing read-only transactions to the read replica (max lag {} ms)", replicaMaxLagMillis);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replica,
+                replicaLagMonitor.getObject(), readYourWritesMaxUsers, readYourWritesMillis, meterRegistry);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+    
+    private HikariDataSource createPool(String url, String user, String pass, String poolName, boolean readOnly) {
         HikariConfig config = new HikariConfig();
         
         // Essential connection properties
-        config.setJdbcUrl(jdbcUrl);
-        config.setUsername(username);
-        config.setPassword(password);
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(pass);
         config.setDriverClassName("com.mysql.cj.jdbc.Driver");
         
         // Connection pool settings
-        config.setConnectionTimeout(30000); // 30 seconds
-        config.setMinimumIdle(5);
-        config.setMaximumPoolSize(10);
-        config.setPoolName("KrabbelHikariPool");
+        config.setConnectionTimeout(connectionTimeout); // 30 seconds unless overridden (virtual profile)
+        config.setMinimumIdle(Math.min(5, maximumPoolSize));
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setPoolName(poolName);
         config.setAutoCommit(true);
+        config.setReadOnly(readOnly);
         config.setConnectionTestQuery("SELECT 1");
         
         // Additional production settings
         config.setMaxLifetime(1800000); // 30 minutes
         config.setIdleTimeout(600000);  // 10 minutes
         
-        logger.debug("Azure MySQL JDBC URL: {}", jdbcUrl);
-        logger.debug("Connection pool size: min={}, max={}", config.getMinimumIdle(), config.getMaximumPoolSize());
+        // Let the MySQL driver rewrite Hibernate's JDBC batches into multi-row statements
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        
+        logger.debug("Connection pool {} size: min={}, max={}", poolName, config.getMinimumIdle(), config.getMaximumPoolSize());
         
         return new HikariDataSource(config);
     }
@@ -0,0 +1,121 @@
+package com.notedapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Measures how far the read replica trails the primary with a heartbeat row.
+ *
+ * Each tick sets replication_heartbeat to the primary's NOW(3) and reads it back from the replica. The
+ * value visible on the replica is the newest primary commit it is known to have applied, which gives
+ * both the lag and a point in time before which all writes can be read from the replica. Only needs
+ * SELECT/UPDATE on one table, unlike SHOW REPLICA STATUS.
+ *
+ * All times are on the primary's clock, as milliseconds of its session time zone (UTC on Azure), so
+ * the application servers' clocks never enter the comparison. To stamp a commit without another
+ * query, each tick also measures the offset of this server's clock against the primary; stamps are
+ * pushed later by the uncertainty of that measurement, which can only keep a read on the primary
+ * longer, never send it to a replica too early.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String BEAT_SQL = "UPDATE replication_heartbeat SET beat_at = NOW(3) WHERE id = 1";
+    private static final String READ_SQL = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+    private static final String CLOCK_SQL = "SELECT NOW(3)";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final long maxCheckAgeMillis;
+
+    private volatile long visibleBeatMillis = 0;
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private volatile long checkedAtMillis = 0;
+    // Primary clock minus this server's clock, and how far that estimate may be off
+    private volatile ClockOffset clockOffset;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMillis, long heartbeatIntervalMillis,
+                             MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMillis = maxLagMillis;
+        // A monitor that stopped getting answers must not keep vouching for the replica
+        this.maxCheckAgeMillis = Math.max(5 * heartbeatIntervalMillis, maxLagMillis);
+        meterRegistry.gauge("krabbel.datasource.replica.lag", this,
+                m -> m.lagMillis == Long.MAX_VALUE ? Double.NaN : m.lagMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeat-interval-ms:250}")
+    public void check() {
+        try {
+            primary.update(BEAT_SQL);
+        } catch (Exception e) {
+            logger.warn("Could not write replication heartbeat: {}", e.getMessage());
+        }
+        Long beat;
+        try {
+            beat = toMillis(replica.queryForObject(READ_SQL, LocalDateTime.class));
+        } catch (Exception e) {
+            lagMillis = Long.MAX_VALUE;
+            logger.warn("Could not read replication heartbeat from replica: {}", e.getMessage());
+            return;
+        }
+        try {
+            long before = System.currentTimeMillis();
+            long primaryNow = toMillis(primary.queryForObject(CLOCK_SQL, LocalDateTime.class));
+            long after = System.currentTimeMillis();
+            // The primary read its clock somewhere between before and after
+            clockOffset = new ClockOffset(primaryNow - (before + after) / 2, (after - before + 1) / 2 + 1);
+            visibleBeatMillis = beat;
+            lagMillis = Math.max(0, primaryNow - beat);
+            checkedAtMillis = after;
+        } catch (Exception e) {
+            lagMillis = Long.MAX_VALUE;
+            logger.warn("Could not read the primary's clock: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return lagMillis <= maxLagMillis && System.currentTimeMillis() - checkedAtMillis <= maxCheckAgeMillis;
+    }
+
+    /**
+     * The primary's clock now, rounded up by the uncertainty of the offset; null until the first
+     * successful check, in which case the replica is not used anyway.
+     */
+    public Long primaryClockMillis() {
+        ClockOffset offset = clockOffset;
+        return offset == null ? null : System.currentTimeMillis() + offset.millis + offset.uncertaintyMillis;
+    }
+
+    /**
+     * True once a heartbeat written after the given primary clock time is visible on the replica, i.e.
+     * every commit made on the primary before that time has been applied there.
+     */
+    public boolean hasReplicated(long primaryClockMillis) {
+        return primaryClockMillis < visibleBeatMillis;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time == null ? 0 : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static final class ClockOffset {
+        final long millis;
+        final long uncertaintyMillis;
+
+        ClockOffset(long millis, long uncertaintyMillis) {
+            this.millis = millis;
+            this.uncertaintyMillis = uncertaintyMillis;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.notedapp.config;
+
+import com.notedapp.cache.BoundedExpiringCache;
+import com.notedapp.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ *
+ * Reads fall back to the primary while the replica lags more than allowed, and for a client whose last
+ * write may not have reached the replica yet (read-your-writes). After a write commits, its position on
+ * the primary's clock is sent back in the {@value #LAST_WRITE_HEADER} response header; clients that
+ * return the latest value with their requests read their writes on every instance. For clients that do
+ * not, each instance also remembers the positions of the writes it served per authenticated user for a
+ * bounded window, which only covers reads that reach the same instance.
+ *
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the transaction manager asks for a connection
+ * before the read-only flag of the new transaction is visible here.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String LAST_WRITE_HEADER = "Last-Write-Position";
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final BoundedExpiringCache<Long, Long> recentWrites;
+    private final long readYourWritesMillis;
+
+    private final Counter replicaReads;
+    private final Counter lagFallbacks;
+    private final Counter readYourWritesFallbacks;
+    private final Counter primaryWrites;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                    int maxTrackedUsers, long readYourWritesMillis, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.lagMonitor = lagMonitor;
+        this.recentWrites = new BoundedExpiringCache<>(maxTrackedUsers);
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.replicaReads = routed(meterRegistry, "replica", "read");
+        this.lagFallbacks = routed(meterRegistry, "primary", "replica_lag");
+        this.readYourWritesFallbacks = routed(meterRegistry, "primary", "read_your_writes");
+        this.primaryWrites = routed(meterRegistry, "primary", "write");
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String target, String reason) {
+        return meterRegistry.counter("krabbel.datasource.routing", "target", target, "reason", reason);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryWrites.increment();
+            rememberWriteAfterCommit(userId);
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            lagFallbacks.increment();
+            return Target.PRIMARY;
+        }
+        if (!hasReplicated(userId == null ? null : recentWrites.get(userId))
+                || !hasReplicated(requestedLastWrite())) {
+            readYourWritesFallbacks.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private boolean hasReplicated(Long lastWrite) {
+        return lastWrite == null || lagMonitor.hasReplicated(lastWrite);
+    }
+
+    private void rememberWriteAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Long position = lagMonitor.primaryClockMillis();
+                if (position == null) {
+                    // Not checked yet, so the replica is not in use; its first visible heartbeat covers this write
+                    return;
+                }
+                if (userId != null) {
+                    recentWrites.put(userId, position, System.currentTimeMillis() + readYourWritesMillis);
+                }
+                HttpServletResponse response = currentResponse();
+                if (response != null && !response.isCommitted()) {
+                    response.setHeader(LAST_WRITE_HEADER, Long.toString(position));
+                }
+            }
+        });
+    }
+
+    /**
+     * The position the client says it last wrote at. Positions further ahead of the primary's clock than
+     * the read-your-writes window cannot come from this server and are ignored, so a bogus header cannot
+     * pin a client to the primary indefinitely.
+     */
+    private Long requestedLastWrite() {
+        ServletRequestAttributes attributes = currentRequest();
+        String header = attributes == null ? null : attributes.getRequest().getHeader(LAST_WRITE_HEADER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            long position = Long.parseLong(header.trim());
+            Long now = lagMonitor.primaryClockMillis();
+            return now == null || position > now + readYourWritesMillis ? null : position;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static HttpServletResponse currentResponse() {
+        ServletRequestAttributes attributes = currentRequest();
+        return attributes == null ? null : attributes.getResponse();
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? (ServletRequestAttributes) attributes : null;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User) {
+            return ((User) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.notedapp.config;
+
+import com.notedapp.entity.Note;
+import com.notedapp.repository.NoteRepository;
+import com.notedapp.search.NoteSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds the in-memory note search index from the database on startup.
+ * Until the rebuild finishes, searches fall back to the database query.
+ */
+@Component
+public class SearchIndexInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    @Value("${notes.search.rebuild-batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public void run(String... args) {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        long indexed = 0;
+
+        List<Note> batch;
+        do {
+            batch = noteRepository.findLiveNotesAfter(lastId, PageRequest.of(0, batchSize));
+            for (Note note : batch) {
+                searchIndex.restore(note.getUser().getId(), note.getId(), note.getTitle(), note.getContent(), note.getChangeSeq());
+                lastId = note.getId();
+            }
+            indexed += batch.size();
+        } while (batch.size() == batchSize);
+
+        searchIndex.markReady();
+        logger.info("Indexed {} notes for search in {} ms", indexed, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,31 @@
+package com.notedapp.controller;
+
+import com.notedapp.dto.admin.NotePurgeResult;
+import com.notedapp.service.impl.DeletedNotePurger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminController {
+
+    @Autowired
+    private DeletedNotePurger deletedNotePurger;
+
+    // Runs a purge pass now instead of waiting for the schedule; returns when the pass is done
+    @PostMapping("/notes/purge")
+    public ResponseEntity<NotePurgeResult> purgeDeletedNotes() {
+        NotePurgeResult result = deletedNotePurger.purge();
+        if (result == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A purge is already running");
+        }
+        return ResponseEntity.ok(result);
+    }
+}
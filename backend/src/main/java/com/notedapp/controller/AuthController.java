@@ -5,11 +5,15 @@ import com.notedapp.dto.auth.LoginRequest;
 import com.notedapp.dto.auth.RegisterRequest;
 import com.notedapp.entity.User;
 import com.notedapp.security.JwtUtils;
+import com.notedapp.security.PasswordHashingOverloadedException;
 import com.notedapp.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -32,6 +36,9 @@ public class AuthController {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
         logger.info("=== LOGIN ATTEMPT RECEIVED ===");
@@ -45,11 +52,13 @@ public class AuthController {
             String jwt = jwtUtils.generateToken((User) authentication.getPrincipal());
             
             User user = (User) authentication.getPrincipal();
-            userService.updateLastLogin(user.getUsername());
+            userService.recordLogin(user);
             
+            meterRegistry.counter("krabbel.auth.login", "outcome", "success").increment();
             logger.info("Login successful for username: {}", request.getUsername());
             return ResponseEntity.ok(new AuthResponse(jwt, user.getUsername(), user.getRole().name()));
         } catch (Exception e) {
+            meterRegistry.counter("krabbel.auth.login", "outcome", "failure").increment();
             logger.error("Login failed for username: {} - Error: {}", request.getUsername(), e.getMessage());
             throw e;
         }
@@ -63,6 +72,14 @@ public class AuthController {
         return ResponseEntity.ok(new AuthResponse(jwt, user.getUsername(), user.getRole().name()));
     }
 
+    @ExceptionHandler(PasswordHashingOverloadedException.class)
+    public ResponseEntity<String> handleHashingOverload(PasswordHashingOverloadedException e) {
+        logger.warn("Rejecting auth request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body("Authentication is temporarily overloaded, please retry shortly");
+    }
+
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         logger.info("=== AUTH TEST ENDPOINT HIT ===");
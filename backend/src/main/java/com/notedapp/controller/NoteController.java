@@ -1,63 +1,325 @@
 package com.notedapp.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.notedapp.dto.note.NoteBatchRequest;
+import com.notedapp.dto.note.NoteBatchResult;
+import com.notedapp.dto.note.NoteChangesResponse;
+import com.notedapp.dto.note.NoteCursor;
+import com.notedapp.dto.note.NotePageResponse;
 import com.notedapp.dto.note.NoteRequest;
 import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.dto.note.NoteRevisionResponse;
+import com.notedapp.dto.note.NoteRevisionSummary;
+import com.notedapp.dto.note.NoteSummaryPageResponse;
 import com.notedapp.entity.User;
+import com.notedapp.service.ChangeCursorExpiredException;
+import com.notedapp.service.IdempotencyKeyConflictException;
+import com.notedapp.service.NoteRevisionService;
 import com.notedapp.service.NoteService;
+import com.notedapp.service.NoteVersionConflictException;
+import com.notedapp.service.impl.IdempotencyService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENCY_REPLAYED = "Idempotency-Replayed";
+
     @Autowired
     private NoteService noteService;
 
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @GetMapping
-    public ResponseEntity<List<NoteResponse>> getUserNotes(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(noteService.getUserNotes(user));
+    public ResponseEntity<NotePageResponse> getUserNotes(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest webRequest) {
+        try {
+            // Read the version before the page so a concurrent write can only make the ETag too old, never too new
+            String etag = listETag("notes", user, cursor, limit);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(etag).body(noteService.getUserNotes(user, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/summaries")
+    public ResponseEntity<NoteSummaryPageResponse> getNoteSummaries(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int limit,
+            WebRequest webRequest) {
+        try {
+            String etag = listETag("summaries", user, cursor, limit);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(etag).body(noteService.getNoteSummaries(user, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<NoteChangesResponse> getChanges(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "0") int limit) {
+        try {
+            return ResponseEntity.ok(noteService.getChanges(user, since, limit));
+        } catch (ChangeCursorExpiredException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNotes(
+            @AuthenticationPrincipal User user,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+            try (OutputStream buffered = new BufferedOutputStream(out, 64 * 1024)) {
+                noteService.exportNotes(user, buffered);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes.ndjson\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            // Already compressed here, so the server's own response compression leaves it alone
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @PostMapping
     public ResponseEntity<NoteResponse> createNote(
             @AuthenticationPrincipal User user,
-            @Valid @RequestBody NoteRequest request) {
-        return ResponseEntity.ok(noteService.createNote(user, request));
+            @Valid @RequestBody NoteRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotent(user, idempotencyKey, "POST /api/notes", request,
+                new TypeReference<NoteResponse>() {}, () -> noteService.createNote(user, request));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<NoteBatchResult>> applyBatch(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody NoteBatchRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        try {
+            return idempotent(user, idempotencyKey, "POST /api/notes/batch", request,
+                    new TypeReference<List<NoteBatchResult>>() {}, () -> noteService.applyBatch(user, request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            // A note in the batch was written concurrently; nothing in the batch was applied
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<NoteResponse> updateNote(
             @AuthenticationPrincipal User user,
             @PathVariable Long id,
-            @Valid @RequestBody NoteRequest request) {
-        return ResponseEntity.ok(noteService.updateNote(user, id, request));
+            @Valid @RequestBody NoteRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedChangeSeq = parseIfMatch(id, ifMatch);
+        try {
+            NoteResponse note = noteService.updateNote(user, id, request, expectedChangeSeq);
+            return ResponseEntity.ok().eTag(noteETag(note.getId(), note.getChangeSeq())).body(note);
+        } catch (NoteVersionConflictException | ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteNote(
             @AuthenticationPrincipal User user,
-            @PathVariable Long id) {
-        noteService.deleteNote(user, id);
+            @PathVariable Long id,
+            @RequestParam(required = false) Long version) {
+        try {
+            noteService.deleteNote(user, id, version);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<NoteResponse> getNote(
             @AuthenticationPrincipal User user,
-            @PathVariable Long id) {
-        return ResponseEntity.ok(noteService.getNote(user, id));
+            @PathVariable Long id,
+            WebRequest webRequest) {
+        // Cheap version probe first: a matching If-None-Match never loads the note content
+        Long changeSeq = noteService.findNoteChangeSeq(user, id).orElse(null);
+        if (changeSeq != null && webRequest.checkNotModified(noteETag(id, changeSeq))) {
+            return null;
+        }
+        NoteResponse note = noteService.getNote(user, id);
+        return ResponseEntity.ok().eTag(noteETag(note.getId(), note.getChangeSeq())).body(note);
+    }
+
+    @GetMapping("/{id}/revisions")
+    public ResponseEntity<List<NoteRevisionSummary>> getRevisions(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "0") int limit) {
+        return ResponseEntity.ok(noteRevisionService.getRevisions(user, id, before, limit));
+    }
+
+    @GetMapping("/{id}/revisions/{revision}")
+    public ResponseEntity<NoteRevisionResponse> getRevision(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @PathVariable long revision) {
+        return noteRevisionService.getRevision(user, id, revision)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Revision not found"));
     }
 
     @GetMapping("/search")
     public ResponseEntity<List<NoteResponse>> searchNotes(
             @AuthenticationPrincipal User user,
-            @RequestParam String keyword) {
-        return ResponseEntity.ok(noteService.searchNotes(user, keyword));
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(noteService.searchNotes(user, keyword, page, size));
+    }
+
+    /**
+     * Runs a create-style write once per Idempotency-Key; retries get the first response back with
+     * Idempotency-Replayed: true. Updates and deletes need no key: repeating them is already harmless
+     * (deletes of deleted notes are no-ops, versioned updates conflict instead of applying twice).
+     */
+    private <T> ResponseEntity<T> idempotent(User user, String idempotencyKey, String operation, Object request,
+                                             TypeReference<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(action.get());
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1 to 255 characters");
+        }
+        try {
+            IdempotencyService.Outcome<T> outcome = idempotencyService.execute(
+                    user.getId(), idempotencyKey, operation, request, responseType, action);
+            return ResponseEntity.ok()
+                    .header(IDEMPOTENCY_REPLAYED, String.valueOf(outcome.isReplayed()))
+                    .body(outcome.getResponse());
+        } catch (IdempotencyKeyConflictException e) {
+            if (e.isInFlight()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+            }
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
+    /**
+     * Tag of one page of a list: the list version plus the page it asks for. A cursor is only put in
+     * the tag once it decodes, which also limits it to base64url characters.
+     */
+    private String listETag(String view, User user, String cursor, int limit) {
+        String page = "first";
+        if (cursor != null && !cursor.isBlank()) {
+            NoteCursor.decode(cursor);
+            page = cursor;
+        }
+        return "\"" + view + "-" + user.getId() + "-" + noteService.getListVersion(user)
+                + "-" + page + "-" + limit + "\"";
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip: named with a q-value above zero, or covered by
+     * "*" without being named. "gzip;q=0" refuses it.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && (parameter.startsWith("q=") || parameter.startsWith("Q="))) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private static String noteETag(Long id, long changeSeq) {
+        return "\"n" + id + "-" + changeSeq + "\"";
+    }
+
+    /**
+     * Turns an If-Match header into the change sequence the client expects, or null when any version
+     * is acceptable. Tags for other notes or in an unknown format can never match, so they fail fast.
+     */
+    private static Long parseIfMatch(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"n" + id + "-";
+        String tag = ifMatch.trim();
+        if (tag.startsWith(prefix) && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "ETag does not match");
     }
 }
\ No newline at end of file
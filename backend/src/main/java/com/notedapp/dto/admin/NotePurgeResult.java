@@ -0,0 +1,18 @@
+package com.notedapp.dto.admin;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one purge run over soft-deleted notes.
+ */
+@Data
+@AllArgsConstructor
+public class NotePurgeResult {
+    private String mode;
+    private int batches;
+    private long notesPurged;
+    private long durationMs;
+    // False when the run stopped at the batch limit with older tombstones still left
+    private boolean complete;
+}
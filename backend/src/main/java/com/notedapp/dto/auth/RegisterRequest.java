@@ -18,5 +18,7 @@ public class RegisterRequest {
     @Email(message = "Email should be valid")
     private String email;
     
+    // Optional key for the X-API-Key header; only its hash is stored
+    @Size(min = 32, max = 255, message = "API key must be between 32 and 255 characters")
     private String apiKey;
 } 
\ No newline at end of file
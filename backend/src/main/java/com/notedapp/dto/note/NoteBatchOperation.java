@@ -0,0 +1,22 @@
+package com.notedapp.dto.note;
+
+import lombok.Data;
+
+@Data
+public class NoteBatchOperation {
+    private Type type;
+
+    // Target note for UPDATE and DELETE
+    private Long id;
+
+    // Required for CREATE and UPDATE
+    private String title;
+    private String content;
+
+    // Optional for UPDATE and DELETE: the operation fails with CONFLICT if the note has moved on
+    private Long version;
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+}
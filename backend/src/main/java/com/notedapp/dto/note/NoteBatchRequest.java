@@ -0,0 +1,12 @@
+package com.notedapp.dto.note;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class NoteBatchRequest {
+    @NotEmpty(message = "At least one operation is required")
+    private List<NoteBatchOperation> operations;
+}
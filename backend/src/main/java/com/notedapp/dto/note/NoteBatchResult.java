@@ -0,0 +1,24 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of one operation in a batch, reported at the same index as the request operation.
+ */
+@Data
+@AllArgsConstructor
+public class NoteBatchResult {
+    private int index;
+    private Status status;
+    private NoteResponse note;
+    private String error;
+
+    public static NoteBatchResult failed(int index, Status status, String error) {
+        return new NoteBatchResult(index, status, null, error);
+    }
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, NOT_FOUND, INVALID, CONFLICT
+    }
+}
@@ -0,0 +1,23 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry in a delta sync response. Deleted notes are sent as tombstones: only id, changeSeq,
+ * deleted and updatedAt are set.
+ */
+@Data
+@AllArgsConstructor
+public class NoteChange {
+    private Long id;
+    private long changeSeq;
+    private boolean deleted;
+    private String title;
+    private String content;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private long version;
+}
@@ -0,0 +1,15 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class NoteChangesResponse {
+    private List<NoteChange> changes;
+    // Pass back as "since" on the next call
+    private long cursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,24 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class NotePageResponse {
+    private List<NoteResponse> notes;
+    private String nextCursor;
+    private boolean hasMore;
+
+    // Copies the notes too, so neither the copy nor this page can change the other
+    public NotePageResponse copy() {
+        List<NoteResponse> copies = new ArrayList<>(notes.size());
+        for (NoteResponse note : notes) {
+            copies.add(note.copy());
+        }
+        return new NotePageResponse(copies, nextCursor, hasMore);
+    }
+}
@@ -10,4 +10,7 @@ public class NoteRequest {
     
     @NotBlank(message = "Content is required")
     private String content;
+    
+    // Version the edit is based on; when set the update only applies if the note is still at it
+    private Long version;
 } 
\ No newline at end of file
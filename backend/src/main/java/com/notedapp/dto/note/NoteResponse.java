@@ -1,5 +1,6 @@
 package com.notedapp.dto.note;
 
+import com.notedapp.entity.Note;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -11,6 +12,25 @@ public class NoteResponse {
     private Long id;
     private String title;
     private String content;
+    // Not re-read by versioned updates, which write the note with a single statement; null there
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private long changeSeq;
+    private long version;
+
+    public NoteResponse copy() {
+        return new NoteResponse(id, title, content, createdAt, updatedAt, changeSeq, version);
+    }
+
+    public static NoteResponse from(Note note) {
+        return new NoteResponse(
+                note.getId(),
+                note.getTitle(),
+                note.getContent(),
+                note.getCreatedAt(),
+                note.getUpdatedAt(),
+                note.getChangeSeq(),
+                note.getVersion()
+        );
+    }
 } 
\ No newline at end of file
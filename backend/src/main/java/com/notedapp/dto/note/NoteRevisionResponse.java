@@ -0,0 +1,16 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class NoteRevisionResponse {
+    private Long noteId;
+    private long revision;
+    private String title;
+    private String content;
+    private LocalDateTime createdAt;
+}
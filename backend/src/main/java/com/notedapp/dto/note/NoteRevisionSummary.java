@@ -0,0 +1,18 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entry in a note's revision list. Populated by a JPQL constructor expression, so payloads are not read.
+ */
+@Data
+@AllArgsConstructor
+public class NoteRevisionSummary {
+    private long revision;
+    private String title;
+    private int contentLength;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.notedapp.dto.note;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view representation of a note: the content is replaced by a server-truncated preview.
+ * Populated directly by a JPQL constructor expression, so the full content never leaves the database.
+ */
+@Data
+@AllArgsConstructor
+public class NoteSummaryResponse {
+    private Long id;
+    private String title;
+    private String preview;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public NoteSummaryResponse copy() {
+        return new NoteSummaryResponse(id, title, preview, createdAt, updatedAt);
+    }
+}
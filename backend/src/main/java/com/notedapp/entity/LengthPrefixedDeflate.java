@@ -0,0 +1,77 @@
+package com.notedapp.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Text stored as its UTF-8 length in a 4-byte big-endian int followed by a raw deflate stream at
+ * BEST_SPEED. Shared by compressed note bodies and revision snapshots.
+ */
+final class LengthPrefixedDeflate {
+
+    private static final int HEADER_LENGTH = 4;
+
+    private LengthPrefixedDeflate() {
+    }
+
+    /**
+     * Returns the stored form, or null if the deflate stream would be longer than {@code maxDeflatedLength}.
+     */
+    static byte[] compress(byte[] raw, int maxDeflatedLength) {
+        int maxLength = (int) Math.min(Integer.MAX_VALUE - 8, HEADER_LENGTH + (long) maxDeflatedLength);
+        byte[] out = new byte[Math.min(maxLength, HEADER_LENGTH + raw.length / 2 + 64)];
+        out[0] = (byte) (raw.length >>> 24);
+        out[1] = (byte) (raw.length >>> 16);
+        out[2] = (byte) (raw.length >>> 8);
+        out[3] = (byte) raw.length;
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            int length = HEADER_LENGTH;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    if (out.length == maxLength) {
+                        return null;
+                    }
+                    out = Arrays.copyOf(out, (int) Math.min(maxLength, out.length * 2L));
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param what names the payload in the exception thrown for truncated or corrupt input
+     */
+    static String decompress(byte[] stored, String what) {
+        int rawLength = ((stored[0] & 0xff) << 24) | ((stored[1] & 0xff) << 16)
+                | ((stored[2] & 0xff) << 8) | (stored[3] & 0xff);
+        byte[] raw = new byte[rawLength];
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            int length = 0;
+            while (length < rawLength) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated " + what);
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt " + what, e);
+        } finally {
+            inflater.end();
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+}
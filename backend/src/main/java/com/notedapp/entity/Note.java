@@ -1,19 +1,29 @@
 package com.notedapp.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notes")
+@Table(name = "notes", indexes = {
+        @Index(name = "idx_notes_user_live_updated", columnList = "user_id, is_deleted, updated_at, id"),
+        @Index(name = "idx_notes_user_change", columnList = "user_id, change_seq"),
+        @Index(name = "idx_notes_deleted_updated", columnList = "is_deleted, updated_at")
+})
 @Data
 @NoArgsConstructor
 public class Note {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -23,9 +33,27 @@ public class Note {
     @Column(nullable = false)
     private String title;
     
+    // Full text, or only its inline prefix when the body is stored compressed (see NoteContentCodec)
     @Column(nullable = false, columnDefinition = "TEXT")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private String content;
     
+    @Column(name = "content_compressed", columnDefinition = "LONGBLOB")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] compressedContent;
+    
+    // Inflated on first access so that loads which never read the body do not pay for it
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String decodedContent;
+    
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
@@ -35,6 +63,42 @@ public class Note {
     @Column(name = "is_deleted", nullable = false)
     private boolean isDeleted = false;
     
+    // Per-user, commit-ordered position of the last write to this note; drives delta sync
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+    
+    // Optimistic lock: single-statement writes compare and bump it, entity writes are checked by Hibernate
+    @Version
+    @Column(nullable = false)
+    private long version;
+    
+    public String getContent() {
+        if (compressedContent == null) {
+            return content;
+        }
+        if (decodedContent == null) {
+            decodedContent = NoteContentCodec.decompress(compressedContent);
+        }
+        return decodedContent;
+    }
+    
+    public void setContent(String content) {
+        byte[] compressed = NoteContentCodec.compress(content);
+        if (compressed == null) {
+            this.content = content;
+            this.compressedContent = null;
+            this.decodedContent = null;
+        } else {
+            this.content = NoteContentCodec.inlinePrefix(content);
+            this.compressedContent = compressed;
+            this.decodedContent = content;
+        }
+    }
+    
+    public boolean isContentCompressed() {
+        return compressedContent != null;
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,63 @@
+package com.notedapp.entity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compression of large note bodies for storage in notes.content_compressed.
+ *
+ * The stored format is that of {@link LengthPrefixedDeflate}. Compression is opt-in and only applied
+ * above a size threshold and when it saves at least a tenth of the bytes; the plain content column then
+ * keeps just an inline prefix for previews.
+ * Settings are static because entities are not Spring-managed; they are applied by NoteCompressionBackfill.
+ */
+public final class NoteContentCodec {
+
+    private static volatile boolean enabled = false;
+    private static volatile int thresholdChars = 4096;
+    private static volatile int inlinePrefixChars = 200;
+
+    private NoteContentCodec() {
+    }
+
+    public static void configure(boolean enabled, int thresholdChars, int inlinePrefixChars) {
+        NoteContentCodec.enabled = enabled;
+        NoteContentCodec.thresholdChars = Math.max(1, thresholdChars);
+        NoteContentCodec.inlinePrefixChars = Math.max(0, inlinePrefixChars);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static int getThresholdChars() {
+        return thresholdChars;
+    }
+
+    /**
+     * Returns the stored form of the content, or null if it should be kept as plain text.
+     */
+    public static byte[] compress(String content) {
+        if (!enabled || content == null || content.length() < thresholdChars) {
+            return null;
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        // Not worth it unless it saves at least a tenth of the bytes
+        return LengthPrefixedDeflate.compress(raw, raw.length - raw.length / 10);
+    }
+
+    public static String decompress(byte[] stored) {
+        return LengthPrefixedDeflate.decompress(stored, "compressed note content");
+    }
+
+    /**
+     * The leading characters kept in the plain content column next to compressed content, cut on a
+     * code point boundary so that SUBSTRING-based previews match the uncompressed case.
+     */
+    public static String inlinePrefix(String content) {
+        int end = 0;
+        for (int i = 0; i < inlinePrefixChars && end < content.length(); i++) {
+            end += Character.charCount(content.codePointAt(end));
+        }
+        return content.substring(0, end);
+    }
+}
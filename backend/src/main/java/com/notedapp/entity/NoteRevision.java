@@ -0,0 +1,58 @@
+package com.notedapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * One version of a note's title and content, stored either as a full snapshot or as a delta against
+ * the previous revision (see NoteRevisionCodec). The revision number is the note's version after the
+ * write. History starts with a note's first edit, and from then on includes the current version, so
+ * any version of an edited note is rebuilt from history alone.
+ * Every row records the snapshot its delta chain starts from, so a version is read with one range query.
+ */
+@Entity
+@Table(name = "note_revisions", uniqueConstraints =
+        @UniqueConstraint(name = "uk_note_revisions_note_revision", columnNames = {"note_id", "revision"}))
+@Data
+@NoArgsConstructor
+public class NoteRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_revision_seq")
+    @SequenceGenerator(name = "note_revision_seq", sequenceName = "note_revision_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "note_id", nullable = false)
+    private Long noteId;
+
+    @Column(nullable = false)
+    private long revision;
+
+    // Equal to revision for snapshots; for deltas, the snapshot the chain up to this revision starts from
+    @Column(name = "snapshot_revision", nullable = false)
+    private long snapshotRevision;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] payload;
+
+    // Characters in the content of this revision, so listings need not decode payloads
+    @Column(name = "content_length", nullable = false)
+    private int contentLength;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public boolean isSnapshot() {
+        return snapshotRevision == revision;
+    }
+}
@@ -0,0 +1,120 @@
+package com.notedapp.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encoding of note revision payloads (note_revisions.payload).
+ *
+ * A snapshot is the full content in the format of {@link LengthPrefixedDeflate}. A delta describes the
+ * content relative to the previous revision as the number of leading and trailing characters the two
+ * share (varints) followed by the UTF-8 text that replaces everything in between. That is a single replaced region, which is exact for the typical edit of one
+ * place in a note; edits spread across a note produce a larger middle, and the caller stores a
+ * snapshot instead when a delta would not be clearly smaller than the text.
+ */
+public final class NoteRevisionCodec {
+
+    private NoteRevisionCodec() {
+    }
+
+    public static byte[] encodeSnapshot(String content) {
+        return LengthPrefixedDeflate.compress(content.getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE);
+    }
+
+    public static String decodeSnapshot(byte[] payload) {
+        return LengthPrefixedDeflate.decompress(payload, "note revision snapshot");
+    }
+
+    public static byte[] encodeDelta(String base, String target) {
+        int limit = Math.min(base.length(), target.length());
+        int prefix = 0;
+        while (prefix < limit && base.charAt(prefix) == target.charAt(prefix)) {
+            prefix++;
+        }
+        // Never split a surrogate pair, or the middle would not encode to UTF-8 faithfully
+        if (prefix > 0 && Character.isHighSurrogate(target.charAt(prefix - 1))) {
+            prefix--;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && base.charAt(base.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(target.charAt(target.length() - suffix))) {
+            suffix--;
+        }
+
+        byte[] middle = target.substring(prefix, target.length() - suffix).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(middle.length + 10);
+        writeVarint(out, prefix);
+        writeVarint(out, suffix);
+        out.write(middle, 0, middle.length);
+        return out.toByteArray();
+    }
+
+    public static String applyDelta(String base, byte[] delta) {
+        int[] position = {0};
+        int prefix = readVarint(delta, position);
+        int suffix = readVarint(delta, position);
+        if (prefix + suffix > base.length()) {
+            throw new IllegalStateException("Note revision delta does not fit its base");
+        }
+        String middle = new String(delta, position[0], delta.length - position[0], StandardCharsets.UTF_8);
+        return base.substring(0, prefix) + middle + base.substring(base.length() - suffix);
+    }
+
+    /**
+     * The number of bytes {@code text.getBytes(UTF_8)} would return, without encoding it.
+     */
+    public static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // An unpaired surrogate is encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Rebuilds the content from a snapshot payload and the delta payloads that follow it, oldest first.
+     */
+    public static String reconstruct(byte[] snapshot, List<byte[]> deltas) {
+        String content = decodeSnapshot(snapshot);
+        for (byte[] delta : deltas) {
+            content = applyDelta(content, delta);
+        }
+        return content;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position[0]++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
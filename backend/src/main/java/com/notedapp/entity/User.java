@@ -12,7 +12,7 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_email", columnList = "email"))
 @Data
 @NoArgsConstructor
 public class User implements UserDetails {
@@ -40,8 +40,19 @@ public class User implements UserDetails {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
     
-    @Column(name = "api_key")
-    private String apiKey;
+    // SHA-256 of the API key (see ApiKeyHasher); the key itself is never stored
+    @Column(name = "api_key_hash", length = 64, unique = true)
+    private String apiKeyHash;
+    
+    // Advanced only by UserRepository.advanceNoteChangeSeq; read-only here so saving a stale User never rewinds it
+    @Column(name = "note_change_seq", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long noteChangeSeq;
+    
+    // Highest change sequence of this user's purged tombstones; maintained by DeletedNotePurger
+    @Column(name = "purged_change_seq", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long purgedChangeSeq;
     
     @PrePersist
     protected void onCreate() {
@@ -1,18 +1,103 @@
 package com.notedapp.repository;
 
+import com.notedapp.dto.note.NoteSummaryResponse;
 import com.notedapp.entity.Note;
 import com.notedapp.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
     List<Note> findByUserAndIsDeletedFalse(User user);
-    List<Note> findByUserAndIsDeletedFalseOrderByUpdatedAtDesc(User user);
     Optional<Note> findByIdAndUser(Long id, User user);
-    List<Note> findByUserAndIsDeletedFalseAndTitleContainingIgnoreCaseOrUserAndIsDeletedFalseAndContentContainingIgnoreCase(
-            User user, String titleKeyword, User sameUser, String contentKeyword);
-} 
\ No newline at end of file
+    List<Note> findByIdInAndUser(Collection<Long> ids, User user);
+
+    // Version probe for conditional requests; reads an index-sized row instead of the content
+    @Query("SELECT n.changeSeq FROM Note n WHERE n.id = :id AND n.user = :user")
+    Optional<Long> findChangeSeqByIdAndUser(@Param("id") Long id, @Param("user") User user);
+
+    // Conflict diagnosis after a conditional write matched no row: absent, deleted or modified
+    @Query("SELECT n.isDeleted FROM Note n WHERE n.id = :id AND n.user = :user")
+    Optional<Boolean> findDeletedFlagByIdAndUser(@Param("id") Long id, @Param("user") User user);
+
+    // Single-statement versioned writes; they return the number of rows changed (0 or 1)
+    @Modifying
+    @Query("UPDATE Note n SET n.title = :title, n.content = :content, n.compressedContent = :compressedContent, " +
+           "n.updatedAt = :updatedAt, n.changeSeq = :changeSeq, n.version = n.version + 1 " +
+           "WHERE n.id = :id AND n.user = :user AND n.isDeleted = false AND n.version = :version " +
+           "AND (:expectedChangeSeq IS NULL OR n.changeSeq = :expectedChangeSeq)")
+    int updateIfVersion(@Param("id") Long id,
+                        @Param("user") User user,
+                        @Param("version") long version,
+                        @Param("expectedChangeSeq") Long expectedChangeSeq,
+                        @Param("title") String title,
+                        @Param("content") String content,
+                        @Param("compressedContent") byte[] compressedContent,
+                        @Param("updatedAt") LocalDateTime updatedAt,
+                        @Param("changeSeq") long changeSeq);
+
+    @Modifying
+    @Query("UPDATE Note n SET n.isDeleted = true, n.updatedAt = :updatedAt, n.changeSeq = :changeSeq, " +
+           "n.version = n.version + 1 " +
+           "WHERE n.id = :id AND n.user = :user AND n.isDeleted = false " +
+           "AND (:version IS NULL OR n.version = :version)")
+    int softDelete(@Param("id") Long id,
+                   @Param("user") User user,
+                   @Param("version") Long version,
+                   @Param("updatedAt") LocalDateTime updatedAt,
+                   @Param("changeSeq") long changeSeq);
+
+    // Keyset pagination: the pageable is only ever used as a LIMIT (page 0), the cursor does the seeking
+    @Query("SELECT n FROM Note n WHERE n.user = :user AND n.isDeleted = false " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findFirstPage(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT n FROM Note n WHERE n.user = :user AND n.isDeleted = false " +
+           "AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<Note> findPageAfter(@Param("user") User user,
+                             @Param("updatedAt") LocalDateTime updatedAt,
+                             @Param("id") Long id,
+                             Pageable pageable);
+
+    // Summary projections: same keyset ordering, but only a prefix of the content is selected
+    @Query("SELECT new com.notedapp.dto.note.NoteSummaryResponse(" +
+           "n.id, n.title, SUBSTRING(n.content, 1, :previewLength), n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE n.user = :user AND n.isDeleted = false " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<NoteSummaryResponse> findFirstSummaryPage(@Param("user") User user,
+                                                   @Param("previewLength") int previewLength,
+                                                   Pageable pageable);
+
+    @Query("SELECT new com.notedapp.dto.note.NoteSummaryResponse(" +
+           "n.id, n.title, SUBSTRING(n.content, 1, :previewLength), n.createdAt, n.updatedAt) " +
+           "FROM Note n WHERE n.user = :user AND n.isDeleted = false " +
+           "AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.id < :id)) " +
+           "ORDER BY n.updatedAt DESC, n.id DESC")
+    List<NoteSummaryResponse> findSummaryPageAfter(@Param("user") User user,
+                                                   @Param("updatedAt") LocalDateTime updatedAt,
+                                                   @Param("id") Long id,
+                                                   @Param("previewLength") int previewLength,
+                                                   Pageable pageable);
+
+    // Delta sync: every note, including tombstones, written after the given change sequence
+    @Query("SELECT n FROM Note n WHERE n.user = :user AND n.changeSeq > :since ORDER BY n.changeSeq ASC")
+    List<Note> findChangesSince(@Param("user") User user, @Param("since") long since, Pageable pageable);
+
+    // id, isDeleted and changeSeq of every note of a user, to find what the search index is missing
+    @Query("SELECT n.id, n.isDeleted, n.changeSeq FROM Note n WHERE n.user.id = :userId")
+    List<Object[]> findIndexStateByUserId(@Param("userId") Long userId);
+
+    // Walks all live notes in id order; used to rebuild the in-memory search index in batches
+    @Query("SELECT n FROM Note n WHERE n.isDeleted = false AND n.id > :afterId ORDER BY n.id ASC")
+    List<Note> findLiveNotesAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
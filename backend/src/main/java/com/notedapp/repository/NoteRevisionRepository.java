@@ -0,0 +1,35 @@
+package com.notedapp.repository;
+
+import com.notedapp.dto.note.NoteRevisionSummary;
+import com.notedapp.entity.NoteRevision;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+
+    // The snapshot the requested revision builds on and every delta up to it, oldest first; empty if
+    // the revision was never recorded
+    @Query("SELECT r FROM NoteRevision r WHERE r.noteId = :noteId AND r.revision <= :revision " +
+           "AND r.revision >= (SELECT t.snapshotRevision FROM NoteRevision t " +
+           "WHERE t.noteId = :noteId AND t.revision = :revision) " +
+           "ORDER BY r.revision ASC")
+    List<NoteRevision> findChain(@Param("noteId") Long noteId, @Param("revision") long revision);
+
+    // Latest revision of each note as (noteId, revision, snapshotRevision), without payloads
+    @Query("SELECT r.noteId, r.revision, r.snapshotRevision FROM NoteRevision r WHERE r.noteId IN :noteIds " +
+           "AND r.revision = (SELECT MAX(m.revision) FROM NoteRevision m WHERE m.noteId = r.noteId)")
+    List<Object[]> findHeads(@Param("noteIds") Collection<Long> noteIds);
+
+    @Query("SELECT new com.notedapp.dto.note.NoteRevisionSummary(r.revision, r.title, r.contentLength, r.createdAt) " +
+           "FROM NoteRevision r WHERE r.noteId = :noteId AND r.revision < :before ORDER BY r.revision DESC")
+    List<NoteRevisionSummary> findSummaries(@Param("noteId") Long noteId,
+                                            @Param("before") long before,
+                                            Pageable pageable);
+}
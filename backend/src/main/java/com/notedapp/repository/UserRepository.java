@@ -1,7 +1,13 @@
 package com.notedapp.repository;
 
 import com.notedapp.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +17,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    boolean existsByApiKeyHash(String apiKeyHash);
+    Optional<User> findByApiKeyHash(String apiKeyHash);
+
+    // The note change counter is mapped read-only on User so that saving a (possibly stale) User entity
+    // can never write it back; it is only ever advanced by this statement, which also row-locks the user.
+    // Both statements declare that they only touch users: Hibernate flushes the whole session before a
+    // native query otherwise, so a note modified before the bump would be written (and versioned) twice.
+    @Modifying
+    @Query(value = "UPDATE users SET note_change_seq = note_change_seq + :count WHERE id = :userId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+    int advanceNoteChangeSeq(@Param("userId") Long userId, @Param("count") int count);
+
+    @Query(value = "SELECT note_change_seq FROM users WHERE id = :userId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+    long findNoteChangeSeq(@Param("userId") Long userId);
+
+    // Delta sync cursors at or below this value may have missed purged deletions
+    @Query(value = "SELECT purged_change_seq FROM users WHERE id = :userId", nativeQuery = true)
+    long findPurgedChangeSeq(@Param("userId") Long userId);
 } 
\ No newline at end of file
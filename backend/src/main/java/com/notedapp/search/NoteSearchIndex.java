@@ -0,0 +1,323 @@
+package com.notedapp.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over note titles and content, partitioned per user.
+ *
+ * Each user gets an independent term dictionary with posting lists, so writes for one user never
+ * block searches for another. Queries are AND-ed across terms, the last term is matched as a prefix
+ * (search-as-you-type) and results are ranked with BM25, title hits weighted higher than content hits.
+ *
+ * The index only sees writes made by this instance; with several instances,
+ * {@link NoteSearchIndexSynchronizer} applies the others' writes from the database.
+ */
+@Component
+public class NoteSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteSearchIndex.class);
+
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int TITLE_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Value("${notes.search.max-prefix-expansions:64}")
+    private int maxPrefixExpansions;
+
+    private final Map<Long, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+        // Once ready nothing indexes stale rows any more, so deletions need not be remembered
+        indexes.values().forEach(UserIndex::forgetRemoved);
+        logger.info("Note search index ready: {} users, {} notes", indexes.size(), size());
+    }
+
+    public long size() {
+        return indexes.values().stream().mapToLong(UserIndex::size).sum();
+    }
+
+    /**
+     * Adds or replaces a note. Versions with a lower change sequence than the one already indexed are
+     * ignored, which keeps a startup rebuild from overwriting an edit that was indexed while the rebuild
+     * was running.
+     */
+    public void index(Long userId, Long noteId, String title, String content, long changeSeq) {
+        indexes.computeIfAbsent(userId, id -> new UserIndex())
+                .put(noteId, tokenize(title), tokenize(content), changeSeq);
+    }
+
+    /**
+     * Adds a note read by the startup rebuild, unless it has been removed since the rebuild read it.
+     */
+    public void restore(Long userId, Long noteId, String title, String content, long changeSeq) {
+        indexes.computeIfAbsent(userId, id -> new UserIndex())
+                .restore(noteId, tokenize(title), tokenize(content), changeSeq);
+    }
+
+    public void remove(Long userId, Long noteId) {
+        // During the rebuild the removal is recorded even for users not indexed yet, see restore()
+        UserIndex index = ready ? indexes.get(userId) : indexes.computeIfAbsent(userId, id -> new UserIndex());
+        if (index != null) {
+            index.remove(noteId, !ready);
+        }
+    }
+
+    /**
+     * The change sequence of the indexed version of a note, or null if the note is not indexed.
+     */
+    public Long indexedChangeSeq(Long userId, Long noteId) {
+        UserIndex index = indexes.get(userId);
+        return index == null ? null : index.indexedChangeSeq(noteId);
+    }
+
+    /**
+     * Returns the ids of the best matching notes for the user, best first.
+     *
+     * @param offset number of ranked hits to skip
+     * @param limit  maximum number of ids to return
+     */
+    public List<Long> search(Long userId, String query, int offset, int limit) {
+        UserIndex index = indexes.get(userId);
+        List<String> terms = tokenize(query);
+        if (index == null || terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        boolean lastIsPrefix = !query.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        return index.search(new ArrayList<>(new LinkedHashSet<>(terms)), lastIsPrefix, offset, limit, maxPrefixExpansions);
+    }
+
+    /**
+     * Lower-cases, strips diacritics and splits on anything that is not a letter or digit.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (current.length() < MAX_TOKEN_LENGTH) {
+                    current.append(Character.toLowerCase(c));
+                }
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static final class IndexedNote {
+        final long changeSeq;
+        final Set<String> terms;
+        final int length;
+
+        IndexedNote(long changeSeq, Set<String> terms, int length) {
+            this.changeSeq = changeSeq;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    private static final class UserIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // term -> (noteId -> weighted term frequency)
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, IndexedNote> notes = new HashMap<>();
+        // Notes removed while the startup rebuild runs, so it cannot add them back
+        private final Set<Long> removed = new HashSet<>();
+        private long totalLength = 0;
+
+        long size() {
+            lock.readLock().lock();
+            try {
+                return notes.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Long indexedChangeSeq(Long noteId) {
+            lock.readLock().lock();
+            try {
+                IndexedNote note = notes.get(noteId);
+                return note == null ? null : note.changeSeq;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void restore(Long noteId, List<String> titleTerms, List<String> contentTerms, long changeSeq) {
+            put(noteId, titleTerms, contentTerms, changeSeq, true);
+        }
+
+        void put(Long noteId, List<String> titleTerms, List<String> contentTerms, long changeSeq) {
+            put(noteId, titleTerms, contentTerms, changeSeq, false);
+        }
+
+        private void put(Long noteId, List<String> titleTerms, List<String> contentTerms, long changeSeq,
+                         boolean unlessRemoved) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            titleTerms.forEach(term -> frequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+            contentTerms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            int length = titleTerms.size() * TITLE_WEIGHT + contentTerms.size();
+
+            lock.writeLock().lock();
+            try {
+                if (unlessRemoved && removed.contains(noteId)) {
+                    return;
+                }
+                IndexedNote existing = notes.get(noteId);
+                if (existing != null) {
+                    if (changeSeq < existing.changeSeq) {
+                        return;
+                    }
+                    unlink(noteId, existing);
+                }
+                frequencies.forEach((term, frequency) ->
+                        postings.computeIfAbsent(term, t -> new HashMap<>()).put(noteId, frequency));
+                notes.put(noteId, new IndexedNote(changeSeq, frequencies.keySet(), length));
+                totalLength += length;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long noteId, boolean remember) {
+            lock.writeLock().lock();
+            try {
+                if (remember) {
+                    removed.add(noteId);
+                }
+                IndexedNote existing = notes.remove(noteId);
+                if (existing != null) {
+                    unlink(noteId, existing);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void forgetRemoved() {
+            lock.writeLock().lock();
+            try {
+                removed.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void unlink(Long noteId, IndexedNote note) {
+            for (String term : note.terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(noteId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= note.length;
+        }
+
+        List<Long> search(List<String> terms, boolean lastIsPrefix, int offset, int limit, int maxExpansions) {
+            lock.readLock().lock();
+            try {
+                int noteCount = notes.size();
+                if (noteCount == 0) {
+                    return Collections.emptyList();
+                }
+                double averageLength = (double) totalLength / noteCount;
+
+                List<Map<Long, Double>> perTerm = new ArrayList<>(terms.size());
+                for (int i = 0; i < terms.size(); i++) {
+                    String term = terms.get(i);
+                    Map<Long, Double> scores = new HashMap<>();
+                    if (lastIsPrefix && i == terms.size() - 1) {
+                        int expansions = 0;
+                        for (Map.Entry<String, Map<Long, Integer>> entry
+                                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                            if (expansions++ >= maxExpansions) {
+                                break;
+                            }
+                            score(entry.getValue(), noteCount, averageLength, scores);
+                        }
+                    } else {
+                        Map<Long, Integer> posting = postings.get(term);
+                        if (posting != null) {
+                            score(posting, noteCount, averageLength, scores);
+                        }
+                    }
+                    if (scores.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                    perTerm.add(scores);
+                }
+
+                // Intersect starting from the most selective term
+                perTerm.sort(Comparator.comparingInt(Map::size));
+                Map<Long, Double> combined = new HashMap<>(perTerm.get(0));
+                for (int i = 1; i < perTerm.size() && !combined.isEmpty(); i++) {
+                    Map<Long, Double> next = perTerm.get(i);
+                    combined.entrySet().removeIf(entry -> !next.containsKey(entry.getKey()));
+                    combined.replaceAll((noteId, score) -> score + next.get(noteId));
+                }
+
+                return topK(combined, offset, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void score(Map<Long, Integer> posting, int noteCount, double averageLength, Map<Long, Double> scores) {
+            int documentFrequency = posting.size();
+            double idf = Math.log(1 + (noteCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            posting.forEach((noteId, frequency) -> {
+                double normalizedLength = notes.get(noteId).length / averageLength;
+                double tf = frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * normalizedLength));
+                scores.merge(noteId, idf * tf, Math::max);
+            });
+        }
+
+        private static List<Long> topK(Map<Long, Double> scores, int offset, int limit) {
+            int k = offset + limit;
+            Comparator<Map.Entry<Long, Double>> byRank = Map.Entry.<Long, Double>comparingByValue()
+                    .thenComparing(Map.Entry.comparingByKey());
+            PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(Math.min(k, scores.size()) + 1, byRank);
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                heap.offer(entry);
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+            List<Long> ranked = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                ranked.add(heap.poll().getKey());
+            }
+            Collections.reverse(ranked);
+            return offset >= ranked.size() ? Collections.emptyList() : ranked.subList(offset, ranked.size());
+        }
+    }
+}
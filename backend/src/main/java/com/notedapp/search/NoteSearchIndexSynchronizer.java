@@ -0,0 +1,156 @@
+package com.notedapp.search;
+
+import com.notedapp.cache.NoteCache;
+import com.notedapp.cache.NoteCacheInvalidation;
+import com.notedapp.cache.NoteCacheInvalidationBus;
+import com.notedapp.entity.Note;
+import com.notedapp.repository.NoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies note writes made by other instances to this instance's {@link NoteSearchIndex}.
+ *
+ * Every write publishes a note cache invalidation on the {@link NoteCacheInvalidationBus}; the ones
+ * from other instances name the note (or the whole user, for batches and purges) that changed. They
+ * are queued here, coalesced, and re-read from the primary database on a short schedule: live notes
+ * are re-indexed, deleted and purged ones removed. A user is refreshed by comparing the change sequence
+ * of every note against the index first, so only notes that actually changed are loaded. With the local
+ * bus (a single instance) no such messages arrive and this does nothing.
+ */
+@Component
+public class NoteSearchIndexSynchronizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteSearchIndexSynchronizer.class);
+
+    private final NoteSearchIndex searchIndex;
+    private final NoteRepository noteRepository;
+    private final NoteCache noteCache;
+    private final TransactionTemplate transactionTemplate;
+
+    // noteId -> userId
+    private final Map<Long, Long> pendingNotes = new ConcurrentHashMap<>();
+    private final Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    private final Counter refreshedNotes;
+    private final Counter refreshedUsers;
+
+    public NoteSearchIndexSynchronizer(NoteSearchIndex searchIndex,
+                                       NoteRepository noteRepository,
+                                       NoteCache noteCache,
+                                       NoteCacheInvalidationBus bus,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry) {
+        this.searchIndex = searchIndex;
+        this.noteRepository = noteRepository;
+        this.noteCache = noteCache;
+        // Read-write, so the routing data source reads from the primary rather than a lagging replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshedNotes = meterRegistry.counter("krabbel.search.sync.refreshed", "scope", "note");
+        this.refreshedUsers = meterRegistry.counter("krabbel.search.sync.refreshed", "scope", "user");
+        meterRegistry.gauge("krabbel.search.sync.pending", pendingNotes, Map::size);
+        bus.subscribe(this::onInvalidation);
+    }
+
+    private void onInvalidation(NoteCacheInvalidation invalidation) {
+        if (noteCache.isLocal(invalidation)) {
+            return;
+        }
+        if (invalidation.getNoteId() == null) {
+            pendingUsers.add(invalidation.getUserId());
+        } else {
+            pendingNotes.put(invalidation.getNoteId(), invalidation.getUserId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notes.search.sync.interval-ms:500}")
+    public void flush() {
+        if (pendingNotes.isEmpty() && pendingUsers.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> notes = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : pendingNotes.entrySet()) {
+            if (pendingNotes.remove(entry.getKey(), entry.getValue())) {
+                notes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<Long> users = new HashSet<>();
+        for (Long userId : pendingUsers) {
+            if (pendingUsers.remove(userId)) {
+                users.add(userId);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                users.forEach(this::refreshUser);
+                // Notes of refreshed users are up to date already
+                notes.values().removeIf(users::contains);
+                refreshNotes(notes);
+            });
+        } catch (Exception e) {
+            // Retried with the next flush; the index stays stale until then
+            logger.warn("Could not refresh the search index for {} notes and {} users: {}",
+                    notes.size(), users.size(), e.getMessage());
+            notes.forEach(pendingNotes::putIfAbsent);
+            pendingUsers.addAll(users);
+        }
+    }
+
+    private void refreshNotes(Map<Long, Long> notes) {
+        if (notes.isEmpty()) {
+            return;
+        }
+        Set<Long> found = new HashSet<>();
+        for (Note note : noteRepository.findAllById(notes.keySet())) {
+            found.add(note.getId());
+            apply(note.getUser().getId(), note);
+        }
+        // Purged since the message was published
+        notes.forEach((noteId, userId) -> {
+            if (!found.contains(noteId)) {
+                searchIndex.remove(userId, noteId);
+            }
+        });
+        refreshedNotes.increment(notes.size());
+    }
+
+    private void refreshUser(Long userId) {
+        List<Long> changed = new ArrayList<>();
+        for (Object[] row : noteRepository.findIndexStateByUserId(userId)) {
+            Long noteId = (Long) row[0];
+            boolean deleted = (Boolean) row[1];
+            Long indexedChangeSeq = searchIndex.indexedChangeSeq(userId, noteId);
+            if (deleted) {
+                searchIndex.remove(userId, noteId);
+            } else if (indexedChangeSeq == null || indexedChangeSeq < (Long) row[2]) {
+                changed.add(noteId);
+            }
+        }
+        for (Note note : noteRepository.findAllById(changed)) {
+            apply(userId, note);
+        }
+        refreshedUsers.increment();
+    }
+
+    private void apply(Long userId, Note note) {
+        if (note.isDeleted()) {
+            searchIndex.remove(userId, note.getId());
+        } else {
+            searchIndex.index(userId, note.getId(), note.getTitle(), note.getContent(), note.getChangeSeq());
+        }
+    }
+}
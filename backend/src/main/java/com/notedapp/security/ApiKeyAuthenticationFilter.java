@@ -0,0 +1,153 @@
+package com.notedapp.security;
+
+import com.notedapp.cache.BoundedExpiringCache;
+import com.notedapp.entity.User;
+import com.notedapp.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticates automation clients by the X-API-Key header.
+ *
+ * Runs before {@link JwtAuthenticationFilter}, which leaves already-authenticated requests alone, so
+ * an API-key request costs one SHA-256 and, on a cache miss, one indexed lookup on users.api_key_hash.
+ * The principal carries only id, username and role, the same as a stateless JWT principal.
+ * An unknown key leaves the request unauthenticated; protected endpoints then answer 401 as usual.
+ *
+ * This runs before {@link RateLimitFilter}, so lookups that miss the cache are limited here, per client
+ * address: a client that keeps sending new keys gets 429 instead of one database query per key.
+ */
+@Component
+public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyAuthenticationFilter.class);
+
+    public static final String HEADER = "X-API-Key";
+
+    @Value("${security.api-key.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.api-key.lookup-limit.requests-per-minute:60}")
+    private int lookupsPerMinute;
+
+    @Value("${security.api-key.lookup-limit.burst:20}")
+    private int lookupBurst;
+
+    @Value("${security.api-key.lookup-limit.max-clients:10000}")
+    private int maxClients;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApiKeyPrincipalCache principalCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BoundedExpiringCache<String, RateLimitBucket> lookupBuckets;
+    private long lookupIntervalNanos;
+    private long lookupBurstNanos;
+
+    private Counter invalidKey;
+    private Counter authenticated;
+    private Counter throttled;
+
+    @PostConstruct
+    void init() {
+        lookupBuckets = new BoundedExpiringCache<>(maxClients);
+        lookupIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, lookupsPerMinute);
+        lookupBurstNanos = lookupIntervalNanos * Math.max(1, lookupBurst);
+        invalidKey = meterRegistry.counter("krabbel.apikey.filter.requests", "outcome", "invalid");
+        authenticated = meterRegistry.counter("krabbel.apikey.filter.requests", "outcome", "authenticated");
+        throttled = meterRegistry.counter("krabbel.apikey.filter.requests", "outcome", "throttled");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            String keyHash = ApiKeyHasher.hash(request.getHeader(HEADER));
+            Optional<User> principal = principalCache.get(keyHash);
+            if (principal == null) {
+                // Keyed by address like anonymous requests in RateLimitFilter; behind a proxy see server.forward-headers-strategy
+                RateLimitBucket.Decision decision = acquireLookup(request.getRemoteAddr());
+                if (!decision.allowed) {
+                    throttled.increment();
+                    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                    long retrySeconds = (decision.nanosUntilNextToken + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+                    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retrySeconds)));
+                    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                    response.getWriter().write("Too many requests, please retry shortly");
+                    return;
+                }
+                principal = loadPrincipal(keyHash);
+                principalCache.put(keyHash, principal);
+            }
+            if (principal.isEmpty()) {
+                invalidKey.increment();
+            } else {
+                authenticated.increment();
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        principal.get(), null, principal.get().getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        } catch (Exception e) {
+            logger.error("Cannot set API key authentication: {}", e.getMessage());
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimitBucket.Decision acquireLookup(String clientAddress) {
+        long now = System.nanoTime();
+        RateLimitBucket bucket = lookupBuckets.get(clientAddress);
+        if (bucket == null) {
+            RateLimitBucket created = new RateLimitBucket(now);
+            RateLimitBucket existing = lookupBuckets.putIfAbsent(clientAddress, created, System.currentTimeMillis() + 1000);
+            bucket = existing != null ? existing : created;
+        }
+        RateLimitBucket.Decision decision = bucket.tryAcquire(now, lookupIntervalNanos, lookupBurstNanos);
+        // Keep the bucket until it has refilled; a dropped bucket would hand out a fresh burst
+        lookupBuckets.put(clientAddress, bucket, System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(decision.nanosUntilFull) + 1);
+        return decision;
+    }
+
+    private Optional<User> loadPrincipal(String keyHash) {
+        return userRepository.findByApiKeyHash(keyHash).map(user -> {
+            // Keep neither the password hash nor the key hash in the long-lived cache
+            User principal = new User();
+            principal.setId(user.getId());
+            principal.setUsername(user.getUsername());
+            principal.setRole(user.getRole());
+            return principal;
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.notedapp.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashes API keys for storage and lookup.
+ *
+ * API keys are long random secrets rather than user-chosen passwords, so a single unsalted SHA-256 is
+ * enough to keep them out of the database in plaintext while still allowing an indexed equality lookup.
+ * The output matches MySQL's SHA2(key, 256), which V10 uses to hash the keys stored before this existed.
+ */
+public final class ApiKeyHasher {
+
+    private ApiKeyHasher() {
+    }
+
+    public static String hash(String apiKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(apiKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
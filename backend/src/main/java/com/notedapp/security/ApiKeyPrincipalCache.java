@@ -0,0 +1,69 @@
+package com.notedapp.security;
+
+import com.notedapp.cache.BoundedExpiringCache;
+import com.notedapp.entity.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-evicting cache of API-key principals keyed by key hash.
+ * Unknown keys are cached too, for a shorter time and in a separate, smaller cache, so repeated
+ * requests with a bad key do not each reach the database and a stream of random keys cannot evict
+ * the valid principals. Call {@link #invalidate(String)} when a key is assigned or revoked.
+ */
+@Component
+public class ApiKeyPrincipalCache {
+
+    @Value("${security.api-key.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${security.api-key.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${security.api-key.cache.negative-max-size:1000}")
+    private int negativeMaxSize;
+
+    @Value("${security.api-key.cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private BoundedExpiringCache<String, User> principals;
+    private BoundedExpiringCache<String, Boolean> unknownKeys;
+
+    @PostConstruct
+    void init() {
+        principals = new BoundedExpiringCache<>(maxSize);
+        unknownKeys = new BoundedExpiringCache<>(negativeMaxSize);
+    }
+
+    /**
+     * The cached principal, an empty Optional for a key cached as unknown, or null if the key is not cached.
+     */
+    public Optional<User> get(String keyHash) {
+        User principal = principals.get(keyHash);
+        if (principal != null) {
+            return Optional.of(principal);
+        }
+        return unknownKeys.get(keyHash) != null ? Optional.empty() : null;
+    }
+
+    public void put(String keyHash, Optional<User> principal) {
+        long now = System.currentTimeMillis();
+        if (principal.isPresent()) {
+            principals.put(keyHash, principal.get(), now + ttlSeconds * 1000);
+        } else {
+            unknownKeys.put(keyHash, Boolean.TRUE, now + negativeTtlSeconds * 1000);
+        }
+    }
+
+    public void invalidate(String keyHash) {
+        principals.invalidate(keyHash);
+        unknownKeys.invalidate(keyHash);
+    }
+
+    public int size() {
+        return principals.size();
+    }
+}
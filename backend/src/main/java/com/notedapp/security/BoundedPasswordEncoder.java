@@ -0,0 +1,120 @@
+package com.notedapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder that runs every hash on a dedicated, bounded executor.
+ *
+ * At most {@code maxConcurrency} hashes run at once, so a login storm cannot take every core away
+ * from cheap requests sharing the Tomcat pool. Work that cannot be queued, or that waited in the
+ * queue longer than {@code queueTimeoutMillis}, fails fast with {@link PasswordHashingOverloadedException}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final long queueTimeoutNanos;
+    private final long retryAfterSeconds;
+
+    private final Timer queueWait;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(int strength, int maxConcurrency, int queueCapacity,
+                                  long queueTimeoutMillis, long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueWait = Timer.builder("krabbel.password.queue_wait").register(meterRegistry);
+        this.encodeTimer = Timer.builder("krabbel.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("krabbel.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejected = meterRegistry.counter("krabbel.password.rejected");
+        meterRegistry.gauge("krabbel.password.queue_size", executor, e -> e.getQueue().size());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    /**
+     * True when the stored hash was made with a different cost than the configured one, so that
+     * DaoAuthenticationProvider rehashes the password after the next successful login.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> hash, Timer hashTimer) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - submittedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > queueTimeoutNanos) {
+                    // The caller has most likely given up already; don't burn CPU on it
+                    throw new PasswordHashingOverloadedException("Password hashing queue timeout", retryAfterSeconds);
+                }
+                return hashTimer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingOverloadedException("Password hashing capacity exhausted", retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PasswordHashingOverloadedException) {
+                rejected.increment();
+                throw (PasswordHashingOverloadedException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.notedapp.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,6 +12,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,6 +23,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -29,6 +36,42 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserPrincipalCache principalCache;
+
+    // When enabled the principal is rebuilt from verified claims instead of being loaded from the database
+    @Value("${security.jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Time per filter stage: reading the header, parsing with signature/expiry checks (one jjwt call,
+    // so not split further), principal resolution
+    private Timer extractTimer;
+    private Timer validateTimer;
+    private Timer loadUserTimer;
+    private Counter missingToken;
+    private Counter invalidToken;
+    private Counter authenticated;
+
+    @PostConstruct
+    void initMetrics() {
+        extractTimer = stageTimer("extract");
+        validateTimer = stageTimer("validate");
+        loadUserTimer = stageTimer("load_user");
+        missingToken = meterRegistry.counter("krabbel.jwt.filter.requests", "outcome", "missing");
+        invalidToken = meterRegistry.counter("krabbel.jwt.filter.requests", "outcome", "invalid");
+        authenticated = meterRegistry.counter("krabbel.jwt.filter.requests", "outcome", "authenticated");
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("krabbel.jwt.filter.stage")
+                .description("Time spent in each JwtAuthenticationFilter stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
@@ -46,13 +89,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
         
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            // Already authenticated by ApiKeyAuthenticationFilter; no token to parse
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         logger.debug("Processing JWT authentication for path: {}", path);
         try {
+            long started = System.nanoTime();
             String jwt = parseJwt(request);
-            if (jwt != null) {
-                String username = jwtUtils.extractUsername(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                if (jwtUtils.validateToken(jwt, userDetails)) {
+            long extracted = System.nanoTime();
+            extractTimer.record(extracted - started, TimeUnit.NANOSECONDS);
+            if (jwt == null) {
+                missingToken.increment();
+            } else {
+                Claims claims = jwtUtils.parseClaims(jwt);
+                long validated = System.nanoTime();
+                validateTimer.record(validated - extracted, TimeUnit.NANOSECONDS);
+                if (claims == null) {
+                    invalidToken.increment();
+                } else {
+                    UserDetails userDetails = resolvePrincipal(claims);
+                    loadUserTimer.record(System.nanoTime() - validated, TimeUnit.NANOSECONDS);
+                    authenticated.increment();
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -65,6 +125,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (statelessPrincipal) {
+            UserDetails principal = jwtUtils.toPrincipal(claims);
+            if (principal != null) {
+                return principal;
+            }
+        }
+        // Full-entity mode, or a token issued before the id/role claims existed
+        return principalCache.get(claims.getSubject(), userDetailsService::loadUserByUsername);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         if (headerAuth != null && headerAuth.startsWith("Bearer ")) {
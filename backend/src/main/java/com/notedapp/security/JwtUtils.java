@@ -1,15 +1,22 @@
 package com.notedapp.security;
 
+import com.notedapp.cache.BoundedExpiringCache;
+import com.notedapp.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -19,15 +26,22 @@ import java.util.function.Function;
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final long expiration;
 
-    @Value("${jwt.expiration}")
-    private long expiration;
+    // Key and parser are immutable and thread-safe, so they are built once instead of per call
+    private final Key signingKey;
+    private final JwtParser parser;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    // SHA-256 of the token -> claims that already passed signature verification, kept until token expiry
+    private final BoundedExpiringCache<ByteBuffer, Claims> verifiedTokens;
+
+    public JwtUtils(@Value("${jwt.secret}") String secret,
+                    @Value("${jwt.expiration}") long expiration,
+                    @Value("${jwt.verified-cache.max-size:10000}") int verifiedCacheSize) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = new BoundedExpiringCache<>(verifiedCacheSize);
     }
 
     public String extractUsername(String token) {
@@ -44,11 +58,30 @@ public class JwtUtils {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+        ByteBuffer digest = digest(token);
+        Claims claims = verifiedTokens.get(digest);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = parser.parseClaimsJws(token).getBody();
+        Date tokenExpiration = claims.getExpiration();
+        if (tokenExpiration != null) {
+            verifiedTokens.put(digest, claims, tokenExpiration.getTime());
+        }
+        return claims;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     private Boolean isTokenExpired(String token) {
@@ -58,7 +91,11 @@ public class JwtUtils {
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         // Add user roles to the token claims
-        claims.put("role", userDetails.getAuthorities().stream().findFirst().orElse(null));
+        claims.put("role", userDetails.getAuthorities().stream().findFirst().map(GrantedAuthority::getAuthority).orElse(null));
+        // Carry the user id so the principal can be rebuilt from the token without a database lookup
+        if (userDetails instanceof User) {
+            claims.put("userId", ((User) userDetails).getId());
+        }
         // Add token creation time to help with token rotation if needed
         claims.put("created", new Date());
         
@@ -71,10 +108,67 @@ public class JwtUtils {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Verifies signature and expiry with a single parse.
+     *
+     * @return the token's claims, or null if the token is not valid
+     */
+    public Claims parseClaims(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (SignatureException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
+        } catch (MalformedJwtException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            logger.error("JWT token is expired: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.error("JWT claims string is empty: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Rebuilds a detached principal (id, username, role) from verified claims.
+     *
+     * @return the principal, or null if the token predates the userId/role claims
+     */
+    public User toPrincipal(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        String role = extractRole(claims);
+        if (userId == null || role == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(userId.longValue());
+        user.setUsername(claims.getSubject());
+        try {
+            user.setRole(User.Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return user;
+    }
+
+    private String extractRole(Claims claims) {
+        Object role = claims.get("role");
+        if (role instanceof String) {
+            return (String) role;
+        }
+        // Older tokens serialized the whole GrantedAuthority object
+        if (role instanceof Map) {
+            Object authority = ((Map<?, ?>) role).get("authority");
+            return authority != null ? authority.toString() : null;
+        }
+        return null;
+    }
+
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
             final String username = extractUsername(token);
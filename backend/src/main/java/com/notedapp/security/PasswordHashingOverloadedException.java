@@ -0,0 +1,18 @@
+package com.notedapp.security;
+
+/**
+ * Thrown when the password hashing bulkhead is saturated and a hash could not be started in time.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
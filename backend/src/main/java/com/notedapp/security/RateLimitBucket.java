@@ -0,0 +1,60 @@
+package com.notedapp.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket for one client and endpoint class.
+ *
+ * Implemented as the generic cell rate algorithm: instead of a token count and a refill timestamp the
+ * bucket keeps a single "theoretical arrival time", the instant at which it would be full again. Taking
+ * a token pushes it forward by one refill interval; the request is refused if that would put it more
+ * than the burst allowance ahead of now. One CAS on a single long updates the bucket, so concurrent
+ * requests never block one another. All times are {@link System#nanoTime()} values.
+ */
+final class RateLimitBucket {
+
+    private final AtomicLong fullAt;
+
+    RateLimitBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * @param intervalNanos time to refill one token
+     * @param burstNanos    intervalNanos times the bucket capacity
+     */
+    Decision tryAcquire(long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                // Not enough tokens; one becomes available once next - burst has passed
+                return new Decision(false, 0, current - now, next - burstNanos - now);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return new Decision(true, (burstNanos - (next - now)) / intervalNanos, next - now, 0);
+            }
+        }
+    }
+
+    /**
+     * A bucket that has refilled completely holds no state a fresh one would not, so it can be dropped.
+     */
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+
+    static final class Decision {
+        final boolean allowed;
+        final long remaining;
+        final long nanosUntilFull;
+        final long nanosUntilNextToken;
+
+        Decision(boolean allowed, long remaining, long nanosUntilFull, long nanosUntilNextToken) {
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.nanosUntilFull = Math.max(0, nanosUntilFull);
+            this.nanosUntilNextToken = Math.max(0, nanosUntilNextToken);
+        }
+    }
+}
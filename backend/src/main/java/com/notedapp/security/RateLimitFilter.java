@@ -0,0 +1,207 @@
+package com.notedapp.security;
+
+import com.notedapp.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-client rate limiting for the /api endpoints, applied after authentication.
+ *
+ * Each endpoint class has its own token bucket per client: authenticated requests are keyed by user,
+ * anonymous ones (logins, registrations) by client address. Every response carries RateLimit-Limit,
+ * RateLimit-Remaining and RateLimit-Reset headers; refused requests get 429 with Retry-After.
+ *
+ * Buckets that have refilled completely are swept periodically, since they hold nothing a new bucket
+ * would not. If clients still exceed {@code security.rate-limit.max-buckets}, an arbitrary tenth of
+ * the buckets is dropped so memory stays bounded even under a flood of distinct addresses.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    enum EndpointClass {
+        AUTH("auth", 20, 10),
+        SEARCH("search", 120, 30),
+        WRITE("write", 300, 60),
+        READ("read", 600, 120);
+
+        final String key;
+        final int defaultRequestsPerMinute;
+        final int defaultBurst;
+
+        EndpointClass(String key, int defaultRequestsPerMinute, int defaultBurst) {
+            this.key = key;
+            this.defaultRequestsPerMinute = defaultRequestsPerMinute;
+            this.defaultBurst = defaultBurst;
+        }
+    }
+
+    @Value("${security.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.rate-limit.max-buckets:100000}")
+    private int maxBuckets;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, RateLimitBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<EndpointClass, Policy> policies = new EnumMap<>(EndpointClass.class);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String prefix = "security.rate-limit." + endpointClass.key;
+            int perMinute = environment.getProperty(prefix + ".requests-per-minute", Integer.class,
+                    endpointClass.defaultRequestsPerMinute);
+            int burst = environment.getProperty(prefix + ".burst", Integer.class, endpointClass.defaultBurst);
+            policies.put(endpointClass, new Policy(endpointClass, perMinute, burst, meterRegistry));
+        }
+        meterRegistry.gaugeMapSize("krabbel.ratelimit.buckets", Tags.empty(), buckets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/") || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        Policy policy = policies.get(classify(request));
+        String client = clientKey(request);
+        long now = System.nanoTime();
+
+        String bucketKey = policy.endpointClass.key + '|' + client;
+        RateLimitBucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(bucketKey, k -> new RateLimitBucket(now));
+        }
+        RateLimitBucket.Decision decision = bucket.tryAcquire(now, policy.intervalNanos, policy.burstNanos);
+
+        response.setHeader("RateLimit-Limit", String.valueOf(policy.burst));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining));
+        response.setHeader("RateLimit-Reset", String.valueOf(toSeconds(decision.nanosUntilFull)));
+        if (!decision.allowed) {
+            policy.rejected.increment();
+            logger.debug("Rate limit exceeded for {} on {} requests", client, policy.endpointClass.key);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, toSeconds(decision.nanosUntilNextToken))));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many requests, please retry shortly");
+            return;
+        }
+        policy.allowed.increment();
+        filterChain.doFilter(request, response);
+    }
+
+    private static EndpointClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/")) {
+            return EndpointClass.AUTH;
+        }
+        if (path.startsWith("/api/notes/search")) {
+            return EndpointClass.SEARCH;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? EndpointClass.READ : EndpointClass.WRITE;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            Object principal = authentication.getPrincipal();
+            if (principal instanceof User && ((User) principal).getId() != null) {
+                return "user:" + ((User) principal).getId();
+            }
+            if (principal instanceof UserDetails) {
+                return "user:" + ((UserDetails) principal).getUsername();
+            }
+        }
+        // Behind a proxy this is only the real client once forwarded headers are trusted (server.forward-headers-strategy)
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval-ms:60000}")
+    public void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private void evict(long now) {
+        // One thread evicts at a time; the others insert meanwhile and may briefly overshoot the bound
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+            int toRemove = buckets.size() - (maxBuckets - maxBuckets / 10);
+            Iterator<String> keys = buckets.keySet().iterator();
+            while (toRemove-- > 0 && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static final class Policy {
+        final EndpointClass endpointClass;
+        final int burst;
+        final long intervalNanos;
+        final long burstNanos;
+        final Counter allowed;
+        final Counter rejected;
+
+        Policy(EndpointClass endpointClass, int requestsPerMinute, int burst, MeterRegistry meterRegistry) {
+            this.endpointClass = endpointClass;
+            this.burst = Math.max(1, burst);
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, requestsPerMinute);
+            this.burstNanos = intervalNanos * this.burst;
+            this.allowed = meterRegistry.counter("krabbel.ratelimit.requests", "class", endpointClass.key, "outcome", "allowed");
+            this.rejected = meterRegistry.counter("krabbel.ratelimit.requests", "class", endpointClass.key, "outcome", "rejected");
+        }
+    }
+}
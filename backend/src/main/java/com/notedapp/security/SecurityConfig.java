@@ -1,5 +1,6 @@
 package com.notedapp.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -11,8 +12,8 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -36,6 +37,15 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private ApiKeyAuthenticationFilter apiKeyAuthenticationFilter;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private UserDetailsPasswordService userDetailsPasswordService;
+
     @Value("${cors.allowed-origins:http://localhost:5173}") // Default voor lokaal
     private String allowedOrigins;
 
@@ -51,6 +61,7 @@ public class SecurityConfig {
                     .allowedOrigins(origins)
                     .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH")
                     .allowedHeaders("*")
+                    .exposedHeaders("ETag", "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "Retry-After", "Idempotency-Replayed", "Last-Write-Position")
                     .allowCredentials(true)
                     .maxAge(3600); // Cache preflight response for 1 hour
             }
@@ -65,6 +76,7 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(Arrays.asList(origins));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("ETag", "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "Retry-After", "Idempotency-Replayed", "Last-Write-Position"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -74,7 +86,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource())) // Enable CORS with configuration
             .csrf(csrf -> csrf.disable()) // Disable CSRF as we're using JWT tokens
@@ -91,20 +103,26 @@ public class SecurityConfig {
                 .requestMatchers("/api/health/**").permitAll() // Public health check endpoint
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/api-docs/**").permitAll()
                 .requestMatchers("/actuator/health", "/actuator/info", "/actuator/health/**").permitAll() // For Azure health checks
+                .requestMatchers("/actuator/prometheus").hasAuthority("ADMIN") // Metrics scrape, with an admin's API key
                 .requestMatchers("OPTIONS", "/**").permitAll() // Allow all OPTIONS requests (CORS preflight)
                 .anyRequest().authenticated()
             )
-            .authenticationProvider(authenticationProvider())
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .authenticationProvider(authenticationProvider)
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(apiKeyAuthenticationFilter, JwtAuthenticationFilter.class)
+            // Runs once the principal is known, so authenticated clients are limited per user
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Rehashes the stored password after login when its BCrypt cost differs from the configured one
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -113,8 +131,21 @@ public class SecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // Static, so creating the encoder never needs this configuration class, whose own dependencies
+    // (the user service) need the encoder in turn
+    @Bean(destroyMethod = "shutdown")
+    public static PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${security.bcrypt.strength:10}") int bcryptStrength,
+            // 0 = half of the available cores
+            @Value("${security.bcrypt.max-concurrency:0}") int bcryptMaxConcurrency,
+            @Value("${security.bcrypt.queue-capacity:100}") int bcryptQueueCapacity,
+            @Value("${security.bcrypt.queue-timeout-ms:2000}") long bcryptQueueTimeoutMs,
+            @Value("${security.bcrypt.retry-after-seconds:1}") long bcryptRetryAfterSeconds) {
+        int concurrency = bcryptMaxConcurrency > 0
+                ? bcryptMaxConcurrency
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(bcryptStrength, concurrency, bcryptQueueCapacity,
+                bcryptQueueTimeoutMs, bcryptRetryAfterSeconds, meterRegistry);
     }
 }
\ No newline at end of file
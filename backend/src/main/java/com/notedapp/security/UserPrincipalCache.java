@@ -0,0 +1,47 @@
+package com.notedapp.security;
+
+import com.notedapp.cache.BoundedExpiringCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting cache of loaded user principals keyed by username.
+ * Used when a request needs the full User entity rather than the claims-only principal.
+ * Call {@link #invalidate(String)} whenever a user's persisted state changes.
+ */
+@Component
+public class UserPrincipalCache {
+
+    @Value("${security.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${security.principal-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedExpiringCache<String, UserDetails> entries;
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedExpiringCache<>(maxSize);
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        return entries.get(username, ttlSeconds * 1000, loader);
+    }
+
+    public void invalidate(String username) {
+        entries.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
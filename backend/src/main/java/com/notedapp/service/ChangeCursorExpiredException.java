@@ -0,0 +1,12 @@
+package com.notedapp.service;
+
+/**
+ * Thrown when a delta sync cursor predates tombstones that have since been purged, so the changes
+ * after it can no longer be listed completely. Surfaced as 410 Gone; the client has to resync from 0.
+ */
+public class ChangeCursorExpiredException extends RuntimeException {
+
+    public ChangeCursorExpiredException(long since) {
+        super("Change cursor " + since + " has expired, resync from 0");
+    }
+}
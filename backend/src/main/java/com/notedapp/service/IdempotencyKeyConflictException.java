@@ -0,0 +1,28 @@
+package com.notedapp.service;
+
+/**
+ * Thrown when a request's Idempotency-Key cannot be honoured: either it was already used for a
+ * different request (surfaced as 422), or the first request with it is still running on another
+ * instance (surfaced as 409; the client should retry shortly).
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    private final boolean inFlight;
+
+    private IdempotencyKeyConflictException(String message, boolean inFlight) {
+        super(message);
+        this.inFlight = inFlight;
+    }
+
+    public static IdempotencyKeyConflictException reused() {
+        return new IdempotencyKeyConflictException("Idempotency-Key was already used for a different request", false);
+    }
+
+    public static IdempotencyKeyConflictException inFlight() {
+        return new IdempotencyKeyConflictException("A request with this Idempotency-Key is still being processed", true);
+    }
+
+    public boolean isInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,13 @@
+package com.notedapp.service;
+
+import com.notedapp.dto.note.NoteRevisionResponse;
+import com.notedapp.dto.note.NoteRevisionSummary;
+import com.notedapp.entity.User;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface NoteRevisionService {
+    List<NoteRevisionSummary> getRevisions(User user, Long noteId, Long before, int limit);
+    Optional<NoteRevisionResponse> getRevision(User user, Long noteId, long revision);
+}
@@ -1,16 +1,32 @@
 package com.notedapp.service;
 
+import com.notedapp.dto.note.NoteBatchRequest;
+import com.notedapp.dto.note.NoteBatchResult;
+import com.notedapp.dto.note.NoteChangesResponse;
+import com.notedapp.dto.note.NotePageResponse;
 import com.notedapp.dto.note.NoteRequest;
 import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.dto.note.NoteSummaryPageResponse;
 import com.notedapp.entity.User;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Optional;
 
 public interface NoteService {
-    List<NoteResponse> getUserNotes(User user);
+    NotePageResponse getUserNotes(User user, String cursor, int limit);
+    NoteSummaryPageResponse getNoteSummaries(User user, String cursor, int limit);
+    NoteChangesResponse getChanges(User user, long since, int limit);
+    long exportNotes(User user, OutputStream out) throws IOException;
     NoteResponse createNote(User user, NoteRequest request);
     NoteResponse updateNote(User user, Long noteId, NoteRequest request);
+    NoteResponse updateNote(User user, Long noteId, NoteRequest request, Long expectedChangeSeq);
     void deleteNote(User user, Long noteId);
+    void deleteNote(User user, Long noteId, Long expectedVersion);
+    List<NoteBatchResult> applyBatch(User user, NoteBatchRequest request);
     NoteResponse getNote(User user, Long noteId);
-    List<NoteResponse> searchNotes(User user, String keyword);
+    Optional<Long> findNoteChangeSeq(User user, Long noteId);
+    long getListVersion(User user);
+    List<NoteResponse> searchNotes(User user, String keyword, int page, int size);
 } 
\ No newline at end of file
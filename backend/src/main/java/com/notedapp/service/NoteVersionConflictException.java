@@ -0,0 +1,14 @@
+package com.notedapp.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Thrown when a versioned note write finds the note at a different version than the client based
+ * its edit on. Surfaced as 409 Conflict.
+ */
+public class NoteVersionConflictException extends OptimisticLockingFailureException {
+
+    public NoteVersionConflictException(Long noteId) {
+        super("Note " + noteId + " has been modified");
+    }
+}
@@ -6,5 +6,5 @@ import com.notedapp.entity.User;
 public interface UserService {
     User register(RegisterRequest request);
     User findByUsername(String username);
-    void updateLastLogin(String username);
+    void recordLogin(User user);
 } 
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.notedapp.service.impl;
+
+import com.notedapp.cache.NoteCache;
+import com.notedapp.cache.NoteCacheInvalidation;
+import com.notedapp.dto.note.NoteBatchRequest;
+import com.notedapp.dto.note.NoteBatchResult;
+import com.notedapp.dto.note.NoteChangesResponse;
+import com.notedapp.dto.note.NotePageResponse;
+import com.notedapp.dto.note.NoteRequest;
+import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.dto.note.NoteSummaryPageResponse;
+import com.notedapp.dto.note.NoteSummaryResponse;
+import com.notedapp.entity.User;
+import com.notedapp.service.NoteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Serves note reads from the {@link NoteCache} and invalidates it after every write.
+ *
+ * This sits in front of {@link NoteServiceImpl} rather than inside it so that a cache hit does not
+ * open a transaction or borrow a connection. Writes invalidate once the delegate returns, which is
+ * after its transaction has committed; callers must not wrap these calls in an outer transaction.
+ * Changes feeds, export and search always go to the database. Cached reads are returned as copies,
+ * since the response DTOs are mutable.
+ */
+@Service
+@Primary
+public class CachingNoteService implements NoteService {
+
+    private static final String LIST_VERSION_KEY = "list:version";
+
+    @Autowired
+    private NoteServiceImpl delegate;
+
+    @Autowired
+    private NoteCache noteCache;
+
+    @Override
+    public NotePageResponse getUserNotes(User user, String cursor, int limit) {
+        return noteCache.get(user.getId(), NoteCache.listKey("notes", cursor, limit), "page",
+                CachingNoteService::weighPage, NotePageResponse::copy,
+                () -> delegate.getUserNotes(user, cursor, limit));
+    }
+
+    @Override
+    public NoteSummaryPageResponse getNoteSummaries(User user, String cursor, int limit) {
+        return noteCache.get(user.getId(), NoteCache.listKey("summaries", cursor, limit), "summaries",
+                CachingNoteService::weighSummaries, NoteSummaryPageResponse::copy,
+                () -> delegate.getNoteSummaries(user, cursor, limit));
+    }
+
+    @Override
+    public NoteResponse getNote(User user, Long noteId) {
+        return noteCache.get(user.getId(), NoteCache.noteKey(noteId), "note",
+                CachingNoteService::weighNote, NoteResponse::copy, () -> delegate.getNote(user, noteId));
+    }
+
+    @Override
+    public Optional<Long> findNoteChangeSeq(User user, Long noteId) {
+        // Conditional GETs probe the change sequence first; answer from the cached note when there is one
+        NoteResponse cached = noteCache.peek(user.getId(), NoteCache.noteKey(noteId));
+        if (cached != null) {
+            return Optional.of(cached.getChangeSeq());
+        }
+        return delegate.findNoteChangeSeq(user, noteId);
+    }
+
+    @Override
+    public long getListVersion(User user) {
+        return noteCache.get(user.getId(), LIST_VERSION_KEY, "version",
+                version -> Long.BYTES, UnaryOperator.identity(), () -> delegate.getListVersion(user));
+    }
+
+    @Override
+    public NoteChangesResponse getChanges(User user, long since, int limit) {
+        return delegate.getChanges(user, since, limit);
+    }
+
+    @Override
+    public long exportNotes(User user, OutputStream out) throws IOException {
+        return delegate.exportNotes(user, out);
+    }
+
+    @Override
+    public List<NoteResponse> searchNotes(User user, String keyword, int page, int size) {
+        return delegate.searchNotes(user, keyword, page, size);
+    }
+
+    @Override
+    public NoteResponse createNote(User user, NoteRequest request) {
+        NoteResponse response = delegate.createNote(user, request);
+        noteCache.invalidate(NoteCacheInvalidation.Scope.LISTS, user.getId(), response.getId());
+        return response;
+    }
+
+    @Override
+    public NoteResponse updateNote(User user, Long noteId, NoteRequest request) {
+        NoteResponse response = delegate.updateNote(user, noteId, request);
+        noteCache.invalidate(NoteCacheInvalidation.Scope.NOTE, user.getId(), noteId);
+        return response;
+    }
+
+    @Override
+    public NoteResponse updateNote(User user, Long noteId, NoteRequest request, Long expectedChangeSeq) {
+        NoteResponse cached = noteCache.peek(user.getId(), NoteCache.noteKey(noteId));
+        NoteResponse response = delegate.updateNote(user, noteId, request, expectedChangeSeq);
+        noteCache.invalidate(NoteCacheInvalidation.Scope.NOTE, user.getId(), noteId);
+        // Versioned updates do not read the note, so they cannot return its creation time themselves
+        if (response.getCreatedAt() == null && cached != null) {
+            response.setCreatedAt(cached.getCreatedAt());
+        }
+        return response;
+    }
+
+    @Override
+    public void deleteNote(User user, Long noteId) {
+        delegate.deleteNote(user, noteId);
+        noteCache.invalidate(NoteCacheInvalidation.Scope.NOTE, user.getId(), noteId);
+    }
+
+    @Override
+    public void deleteNote(User user, Long noteId, Long expectedVersion) {
+        delegate.deleteNote(user, noteId, expectedVersion);
+        noteCache.invalidate(NoteCacheInvalidation.Scope.NOTE, user.getId(), noteId);
+    }
+
+    @Override
+    public List<NoteBatchResult> applyBatch(User user, NoteBatchRequest request) {
+        List<NoteBatchResult> results = delegate.applyBatch(user, request);
+        // A batch can touch hundreds of notes; dropping the user is cheaper than one message per note
+        noteCache.invalidateUser(user.getId());
+        return results;
+    }
+
+    private static long weighNote(NoteResponse note) {
+        return 2L * (length(note.getTitle()) + length(note.getContent())) + 64;
+    }
+
+    private static long weighPage(NotePageResponse page) {
+        long bytes = 2L * length(page.getNextCursor());
+        for (NoteResponse note : page.getNotes()) {
+            bytes += weighNote(note);
+        }
+        return bytes;
+    }
+
+    private static long weighSummaries(NoteSummaryPageResponse page) {
+        long bytes = 2L * length(page.getNextCursor());
+        for (NoteSummaryResponse summary : page.getNotes()) {
+            bytes += 2L * (length(summary.getTitle()) + length(summary.getPreview())) + 64;
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
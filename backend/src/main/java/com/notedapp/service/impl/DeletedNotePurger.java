@@ -0,0 +1,214 @@
+package com.notedapp.service.impl;
+
+import com.notedapp.cache.NoteCache;
+import com.notedapp.dto.admin.NotePurgeResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes soft-deleted notes once they are older than the retention window.
+ *
+ * Tombstones are walked in (updated_at, id) order over idx_notes_deleted_updated. Each batch is its own
+ * short transaction that locks just the rows it moves, so the purge never holds long locks; batches
+ * are separated by a pause and a run stops after a fixed number of them. In "archive" mode rows are
+ * copied to notes_archive before being deleted, in "delete" mode they are dropped.
+ *
+ * Delta sync relies on tombstones, so each user's highest purged change sequence is recorded and
+ * change cursors older than that are rejected instead of silently missing the deletions.
+ */
+@Component
+public class DeletedNotePurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletedNotePurger.class);
+
+    private static final String SELECT_BATCH_SQL =
+            "SELECT id, user_id, change_seq, updated_at FROM notes " +
+            "WHERE is_deleted = TRUE AND updated_at < :cutoff " +
+            "AND (updated_at > :lastUpdatedAt OR (updated_at = :lastUpdatedAt AND id > :lastId)) " +
+            "ORDER BY updated_at, id LIMIT :limit FOR UPDATE";
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO notes_archive (id, user_id, title, content, content_compressed, created_at, updated_at, " +
+            "change_seq, version, archived_at) " +
+            "SELECT id, user_id, title, content, content_compressed, created_at, updated_at, change_seq, version, :now " +
+            "FROM notes WHERE id IN (:ids)";
+    private static final String DELETE_REVISIONS_SQL = "DELETE FROM note_revisions WHERE note_id IN (:ids)";
+    private static final String DELETE_SQL = "DELETE FROM notes WHERE id IN (:ids)";
+    private static final String PURGED_SEQ_SQL =
+            "UPDATE users SET purged_change_seq = GREATEST(purged_change_seq, ?) WHERE id = ?";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NoteCache noteCache;
+
+    private final boolean enabled;
+    private final boolean archive;
+    private final int retentionDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong lastRunPurged = new AtomicLong();
+
+    private final Counter purged;
+    private final Counter batches;
+    private final Timer batchTimer;
+
+    public DeletedNotePurger(NamedParameterJdbcTemplate namedJdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             NoteCache noteCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${notes.purge.enabled:true}") boolean enabled,
+                             @Value("${notes.purge.mode:archive}") String mode,
+                             @Value("${notes.purge.retention-days:30}") int retentionDays,
+                             @Value("${notes.purge.batch-size:500}") int batchSize,
+                             @Value("${notes.purge.max-batches-per-run:200}") int maxBatchesPerRun,
+                             @Value("${notes.purge.pause-ms:200}") long pauseMillis) {
+        if (!mode.equals("archive") && !mode.equals("delete")) {
+            throw new IllegalArgumentException("notes.purge.mode must be 'archive' or 'delete', was '" + mode + "'");
+        }
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.noteCache = noteCache;
+        this.enabled = enabled;
+        this.archive = mode.equals("archive");
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+        this.purged = meterRegistry.counter("krabbel.notes.purge.purged", "mode", mode);
+        this.batches = meterRegistry.counter("krabbel.notes.purge.batches");
+        this.batchTimer = meterRegistry.timer("krabbel.notes.purge.batch");
+        meterRegistry.gauge("krabbel.notes.purge.last_run_purged", lastRunPurged);
+    }
+
+    @Scheduled(cron = "${notes.purge.cron:0 30 3 * * *}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purge();
+        }
+    }
+
+    /**
+     * Runs one purge pass. Returns null if a pass is already running in this instance; concurrent
+     * passes on other instances are safe because each batch locks the rows it moves.
+     */
+    public NotePurgeResult purge() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return runPurge();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private NotePurgeResult runPurge() {
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Cursor cursor = new Cursor();
+        long total = 0;
+        int batchCount = 0;
+        boolean complete = false;
+
+        while (batchCount < maxBatchesPerRun) {
+            int moved = batchTimer.record(() -> transactionTemplate.execute(status -> purgeBatch(cutoff, cursor)));
+            // Cached reads of these users may still show the purged tombstones
+            cursor.lastBatchUsers.forEach(noteCache::invalidateUser);
+            batchCount++;
+            batches.increment();
+            total += moved;
+            purged.increment(moved);
+            if (cursor.lastBatchSize < batchSize) {
+                complete = true;
+                break;
+            }
+            pause();
+        }
+
+        lastRunPurged.set(total);
+        String mode = archive ? "archive" : "delete";
+        logger.info("Purged {} soft-deleted notes older than {} days ({}, {} batches, complete={}) in {} ms",
+                total, retentionDays, mode, batchCount, complete, System.currentTimeMillis() - start);
+        return new NotePurgeResult(mode, batchCount, total, System.currentTimeMillis() - start, complete);
+    }
+
+    private int purgeBatch(LocalDateTime cutoff, Cursor cursor) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("lastUpdatedAt", cursor.lastUpdatedAt)
+                .addValue("lastId", cursor.lastId)
+                .addValue("limit", batchSize);
+
+        List<Long> ids = new ArrayList<>(batchSize);
+        Map<Long, Long> maxSeqByUser = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_BATCH_SQL, params, rs -> {
+            long id = rs.getLong("id");
+            ids.add(id);
+            maxSeqByUser.merge(rs.getLong("user_id"), rs.getLong("change_seq"), Math::max);
+            cursor.lastUpdatedAt = rs.getTimestamp("updated_at");
+            cursor.lastId = id;
+        });
+        cursor.lastBatchSize = ids.size();
+        cursor.lastBatchUsers = maxSeqByUser.keySet();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource idParams = new MapSqlParameterSource("ids", ids)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+        if (archive) {
+            namedJdbcTemplate.update(ARCHIVE_SQL, idParams);
+        }
+        // The archive keeps the final version only; the revision history goes in both modes
+        namedJdbcTemplate.update(DELETE_REVISIONS_SQL, idParams);
+        int deleted = namedJdbcTemplate.update(DELETE_SQL, idParams);
+
+        List<Object[]> purgedSeqs = new ArrayList<>(maxSeqByUser.size());
+        maxSeqByUser.forEach((userId, seq) -> purgedSeqs.add(new Object[]{seq, userId}));
+        jdbcTemplate.batchUpdate(PURGED_SEQ_SQL, purgedSeqs);
+        return deleted;
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Cursor {
+        Timestamp lastUpdatedAt = Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0));
+        long lastId = 0;
+        int lastBatchSize;
+        Set<Long> lastBatchUsers = Set.of();
+    }
+}
@@ -0,0 +1,202 @@
+package com.notedapp.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notedapp.cache.IdempotencyRecord;
+import com.notedapp.cache.IdempotencyStore;
+import com.notedapp.service.IdempotencyKeyConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write at most once per user and Idempotency-Key, replaying the stored response for retries.
+ *
+ * Retries arriving while the first execution is still running in this instance wait for it and get
+ * its response. If it runs on another instance (only possible with the jdbc store), they are refused
+ * as in flight instead of waiting on a remote execution. A key sent again with a different request is
+ * refused outright. Failed executions are not stored, so the client can retry them with the same key.
+ */
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long leaseMillis;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter coalesced;
+    private final Counter rejected;
+
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${notes.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${notes.idempotency.lease-seconds:30}") long leaseSeconds) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+        this.executed = meterRegistry.counter("krabbel.idempotency.requests", "outcome", "executed");
+        this.replayed = meterRegistry.counter("krabbel.idempotency.requests", "outcome", "replayed");
+        this.coalesced = meterRegistry.counter("krabbel.idempotency.requests", "outcome", "coalesced");
+        this.rejected = meterRegistry.counter("krabbel.idempotency.requests", "outcome", "rejected");
+    }
+
+    /**
+     * Result of {@link #execute}: the response, and whether it was replayed rather than produced now.
+     */
+    public static final class Outcome<T> {
+        private final T response;
+        private final boolean replayed;
+
+        Outcome(T response, boolean replayed) {
+            this.response = response;
+            this.replayed = replayed;
+        }
+
+        public T getResponse() {
+            return response;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    /**
+     * @param operation identifies the endpoint, so one key cannot be replayed across endpoints
+     * @param request   the request body; a retry must send the same one
+     */
+    public <T> Outcome<T> execute(Long userId, String idempotencyKey, String operation, Object request,
+                                  TypeReference<T> responseType, Supplier<T> action) {
+        String key = userId + ":" + idempotencyKey;
+        String fingerprint = fingerprint(operation, request);
+
+        while (true) {
+            InFlight mine = new InFlight(fingerprint);
+            InFlight running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                String json = awaitResponse(running, fingerprint);
+                if (json != null) {
+                    coalesced.increment();
+                    return new Outcome<>(read(json, responseType), true);
+                }
+                // The running execution failed and released the key; try again ourselves
+                continue;
+            }
+            try {
+                return executeClaimed(key, fingerprint, mine, responseType, action);
+            } finally {
+                // Remove before waking waiters, so one that has to retry cannot find this execution again
+                inFlight.remove(key, mine);
+                mine.response.complete(mine.responseJson);
+            }
+        }
+    }
+
+    private <T> Outcome<T> executeClaimed(String key, String fingerprint, InFlight mine,
+                                          TypeReference<T> responseType, Supplier<T> action) {
+        IdempotencyRecord existing = store.claim(key, fingerprint, leaseMillis);
+        if (existing != null) {
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                rejected.increment();
+                throw IdempotencyKeyConflictException.reused();
+            }
+            if (existing.isPending()) {
+                rejected.increment();
+                throw IdempotencyKeyConflictException.inFlight();
+            }
+            replayed.increment();
+            return new Outcome<>(read(existing.getResponseJson(), responseType), true);
+        }
+
+        T response;
+        String json;
+        try {
+            response = action.get();
+            json = write(response);
+        } catch (RuntimeException e) {
+            store.release(key);
+            throw e;
+        }
+        store.complete(key, new IdempotencyRecord(fingerprint, json), ttlMillis);
+        mine.responseJson = json;
+        executed.increment();
+        return new Outcome<>(response, false);
+    }
+
+    private String awaitResponse(InFlight running, String fingerprint) {
+        if (!running.fingerprint.equals(fingerprint)) {
+            rejected.increment();
+            throw IdempotencyKeyConflictException.reused();
+        }
+        try {
+            return running.response.get(leaseMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            rejected.increment();
+            throw IdempotencyKeyConflictException.inFlight();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IdempotencyKeyConflictException.inFlight();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response", e);
+        }
+    }
+
+    private <T> T read(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored response", e);
+        }
+    }
+
+    private static final class InFlight {
+        final String fingerprint;
+        // Completed with the serialized response, or with null when this execution produced none
+        final CompletableFuture<String> response = new CompletableFuture<>();
+        String responseJson;
+
+        InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.notedapp.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records last-login timestamps off the login path.
+ *
+ * Logins only put the user's timestamp into a bounded map, so repeated logins by the same user
+ * coalesce into one pending write. A scheduled flush drains the map and writes it with batched
+ * UPDATE statements; whatever is still pending is flushed on shutdown.
+ */
+@Component
+public class LastLoginWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginWriter.class);
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxPending;
+    private final int batchSize;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final Counter recorded;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter written;
+    private final Timer flushTimer;
+
+    public LastLoginWriter(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${users.last-login.max-pending:10000}") int maxPending,
+                           @Value("${users.last-login.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.recorded = meterRegistry.counter("krabbel.last_login.recorded");
+        this.coalesced = meterRegistry.counter("krabbel.last_login.coalesced");
+        this.dropped = meterRegistry.counter("krabbel.last_login.dropped");
+        this.written = meterRegistry.counter("krabbel.last_login.written");
+        this.flushTimer = meterRegistry.timer("krabbel.last_login.flush");
+        meterRegistry.gauge("krabbel.last_login.pending", pending, Map::size);
+    }
+
+    public void record(Long userId, LocalDateTime loginTime) {
+        recorded.increment();
+        // Dropping under overload only loses a best-effort timestamp, never blocks a login
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            dropped.increment();
+            return;
+        }
+        pending.compute(userId, (id, current) -> {
+            if (current == null) {
+                return loginTime;
+            }
+            coalesced.increment();
+            return loginTime.isAfter(current) ? loginTime : current;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${users.last-login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+                // Only remove the exact value read, so a newer login recorded meanwhile stays pending
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    batch.add(new Object[]{Timestamp.valueOf(entry.getValue()), entry.getKey()});
+                }
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        });
+    }
+
+    private void write(List<Object[]> batch) {
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            logger.error("Failed to write {} last-login updates: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Flushing {} pending last-login updates before shutdown", pending.size());
+        flush();
+    }
+}
@@ -0,0 +1,102 @@
+package com.notedapp.service.impl;
+
+import com.notedapp.entity.NoteContentCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the note compression settings and compresses existing rows in the background.
+ *
+ * New writes are compressed by Note.setContent as soon as notes.storage.compression.enabled is set.
+ * Rows written before that are picked up here, one small batch per tick in id order, so the backfill
+ * never holds long transactions or saturates the database. Each update is guarded by the row's
+ * change_seq, so a note edited in the meantime is left to its own (already compressed) write.
+ */
+@Component
+public class NoteCompressionBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoteCompressionBackfill.class);
+
+    private static final String SELECT_SQL =
+            "SELECT id, content, change_seq FROM notes " +
+            "WHERE id > ? AND content_compressed IS NULL AND CHAR_LENGTH(content) >= ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL =
+            "UPDATE notes SET content = ?, content_compressed = ? " +
+            "WHERE id = ? AND change_seq = ? AND content_compressed IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean backfillEnabled;
+    private final int batchSize;
+
+    private final Counter compressed;
+    private final Counter skipped;
+    private final Counter bytesSaved;
+
+    private long lastId = 0;
+    private boolean finished = false;
+
+    public NoteCompressionBackfill(JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${notes.storage.compression.enabled:false}") boolean enabled,
+                                   @Value("${notes.storage.compression.threshold-chars:4096}") int thresholdChars,
+                                   @Value("${notes.summary.preview-length:200}") int previewLength,
+                                   @Value("${notes.storage.compression.backfill.enabled:true}") boolean backfillEnabled,
+                                   @Value("${notes.storage.compression.backfill.batch-size:200}") int batchSize) {
+        // The inline prefix doubles as the source of summary previews, so it must cover the preview length
+        NoteContentCodec.configure(enabled, thresholdChars, previewLength);
+        this.jdbcTemplate = jdbcTemplate;
+        this.backfillEnabled = backfillEnabled;
+        this.batchSize = batchSize;
+        this.compressed = meterRegistry.counter("krabbel.notes.compression.backfilled");
+        this.skipped = meterRegistry.counter("krabbel.notes.compression.skipped");
+        this.bytesSaved = meterRegistry.counter("krabbel.notes.compression.bytes_saved");
+    }
+
+    @Scheduled(fixedDelayString = "${notes.storage.compression.backfill.interval-ms:1000}",
+               initialDelayString = "${notes.storage.compression.backfill.initial-delay-ms:30000}")
+    public void backfillBatch() {
+        if (finished || !backfillEnabled || !NoteContentCodec.isEnabled()) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>(batchSize);
+        int[] scanned = {0};
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            scanned[0]++;
+            long id = rs.getLong("id");
+            String content = rs.getString("content");
+            lastId = id;
+            byte[] stored = NoteContentCodec.compress(content);
+            if (stored == null) {
+                // Does not compress well enough; stays plain, the scan has already moved past it
+                skipped.increment();
+                return;
+            }
+            bytesSaved.increment(content.getBytes(StandardCharsets.UTF_8).length - stored.length);
+            updates.add(new Object[]{NoteContentCodec.inlinePrefix(content), stored, id, rs.getLong("change_seq")});
+        }, lastId, NoteContentCodec.getThresholdChars(), batchSize);
+
+        if (!updates.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            for (int count : counts) {
+                // 0 means the note changed since it was read; rewritten batches report SUCCESS_NO_INFO
+                if (count != 0) {
+                    compressed.increment();
+                }
+            }
+        }
+        if (scanned[0] < batchSize) {
+            finished = true;
+            logger.info("Note compression backfill finished at id {}", lastId);
+        }
+    }
+}
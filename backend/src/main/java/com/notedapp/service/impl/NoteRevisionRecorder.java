@@ -0,0 +1,175 @@
+package com.notedapp.service.impl;
+
+import com.notedapp.dto.note.NoteRevisionResponse;
+import com.notedapp.entity.Note;
+import com.notedapp.entity.NoteRevision;
+import com.notedapp.entity.NoteRevisionCodec;
+import com.notedapp.repository.NoteRevisionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes note revisions as part of the note update transactions and rebuilds versions from them.
+ *
+ * History starts with a note's first edit: the version being replaced is stored as a snapshot, and
+ * from then on every update adds a delta against the previous revision. A snapshot is taken instead
+ * once {@code notes.revisions.snapshot-interval} deltas have accumulated, or when the delta would be
+ * more than half the size of the text, so rebuilding any version decodes one snapshot and at most
+ * interval - 1 deltas.
+ */
+@Component
+public class NoteRevisionRecorder {
+
+    @Autowired
+    private NoteRevisionRepository revisionRepository;
+
+    @Value("${notes.revisions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notes.revisions.snapshot-interval:16}")
+    private int snapshotInterval;
+
+    /**
+     * The state an update replaces. {@code deltasSinceSnapshot} is -1 when that state is not in the
+     * history yet and has to be recorded first.
+     */
+    public static final class Base {
+        final long revision;
+        final String title;
+        final String content;
+        final long deltasSinceSnapshot;
+        // When the replaced state was written; only needed while it is not in the history yet
+        final LocalDateTime writtenAt;
+
+        Base(long revision, String title, String content, long deltasSinceSnapshot, LocalDateTime writtenAt) {
+            this.revision = revision;
+            this.title = title;
+            this.content = content;
+            this.deltasSinceSnapshot = deltasSinceSnapshot;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Bases for updates of notes that are loaded already. Call before modifying them.
+     */
+    public Map<Long, Base> basesFor(Collection<Note> notes) {
+        if (!enabled || notes.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, long[]> heads = new HashMap<>();
+        List<Long> ids = notes.stream().map(Note::getId).collect(Collectors.toList());
+        for (Object[] head : revisionRepository.findHeads(ids)) {
+            heads.put((Long) head[0], new long[]{(Long) head[1], (Long) head[2]});
+        }
+        Map<Long, Base> bases = new HashMap<>();
+        for (Note note : notes) {
+            long[] head = heads.get(note.getId());
+            // Only a history that ends at the note's current version can be extended with a delta
+            long deltas = head != null && head[0] == note.getVersion() ? head[0] - head[1] : -1;
+            bases.put(note.getId(), new Base(note.getVersion(), note.getTitle(), note.getContent(), deltas,
+                    note.getUpdatedAt()));
+        }
+        return bases;
+    }
+
+    public Base baseFor(Note note) {
+        return basesFor(List.of(note)).get(note.getId());
+    }
+
+    /**
+     * Base for an update from the given version, rebuilt from the history without loading the note.
+     * Returns null if the history does not reach that version; the caller then loads the note.
+     */
+    public Base baseFromHistory(Long noteId, long version) {
+        if (!enabled) {
+            return null;
+        }
+        List<NoteRevision> chain = revisionRepository.findChain(noteId, version);
+        if (chain.isEmpty()) {
+            return null;
+        }
+        NoteRevision head = chain.get(chain.size() - 1);
+        return new Base(version, head.getTitle(), rebuild(chain), version - head.getSnapshotRevision(), null);
+    }
+
+    /**
+     * Records the note as written at {@code revision}. Must run in the transaction of the update.
+     */
+    public void record(Long noteId, Base base, long revision, String title, String content) {
+        // An update that did not change the note does not bump its version either
+        if (!enabled || base == null || revision <= base.revision) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<NoteRevision> rows = new ArrayList<>(2);
+        long deltas = base.deltasSinceSnapshot;
+        long snapshotRevision;
+        if (deltas < 0) {
+            rows.add(revision(noteId, base.revision, base.revision, base.title, base.content,
+                    NoteRevisionCodec.encodeSnapshot(base.content), base.writtenAt != null ? base.writtenAt : now));
+            deltas = 0;
+            snapshotRevision = base.revision;
+        } else {
+            snapshotRevision = base.revision - deltas;
+        }
+
+        byte[] delta = NoteRevisionCodec.encodeDelta(base.content, content);
+        if (deltas + 1 >= snapshotInterval || delta.length * 2L > NoteRevisionCodec.utf8Length(content)) {
+            rows.add(revision(noteId, revision, revision, title, content, NoteRevisionCodec.encodeSnapshot(content), now));
+        } else {
+            rows.add(revision(noteId, revision, snapshotRevision, title, content, delta, now));
+        }
+        revisionRepository.saveAll(rows);
+    }
+
+    /**
+     * The given revision with its content rebuilt, or null if it was never recorded.
+     */
+    public NoteRevisionResponse findRevision(Long noteId, long revision) {
+        List<NoteRevision> chain = revisionRepository.findChain(noteId, revision);
+        if (chain.isEmpty()) {
+            return null;
+        }
+        NoteRevision head = chain.get(chain.size() - 1);
+        return new NoteRevisionResponse(noteId, revision, head.getTitle(), rebuild(chain), head.getCreatedAt());
+    }
+
+    private static String rebuild(List<NoteRevision> chain) {
+        NoteRevision first = chain.get(0);
+        NoteRevision last = chain.get(chain.size() - 1);
+        if (!first.isSnapshot() || last.getRevision() - first.getRevision() != chain.size() - 1) {
+            throw new IllegalStateException("Incomplete revision history for note " + first.getNoteId());
+        }
+        List<byte[]> deltas = chain.subList(1, chain.size()).stream()
+                .map(NoteRevision::getPayload)
+                .collect(Collectors.toList());
+        return NoteRevisionCodec.reconstruct(first.getPayload(), deltas);
+    }
+
+    private static NoteRevision revision(Long noteId, long revision, long snapshotRevision, String title,
+                                         String content, byte[] payload, LocalDateTime createdAt) {
+        NoteRevision row = new NoteRevision();
+        row.setNoteId(noteId);
+        row.setRevision(revision);
+        row.setSnapshotRevision(snapshotRevision);
+        row.setTitle(title);
+        row.setPayload(payload);
+        row.setContentLength(content.length());
+        row.setCreatedAt(createdAt);
+        return row;
+    }
+}
@@ -0,0 +1,66 @@
+package com.notedapp.service.impl;
+
+import com.notedapp.dto.note.NoteRevisionResponse;
+import com.notedapp.dto.note.NoteRevisionSummary;
+import com.notedapp.entity.Note;
+import com.notedapp.entity.User;
+import com.notedapp.repository.NoteRepository;
+import com.notedapp.repository.NoteRevisionRepository;
+import com.notedapp.service.NoteRevisionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class NoteRevisionServiceImpl implements NoteRevisionService {
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteRevisionRepository revisionRepository;
+
+    @Autowired
+    private NoteRevisionRecorder revisionRecorder;
+
+    @Value("${notes.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${notes.page.max-size:200}")
+    private int maxPageSize;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteRevisionSummary> getRevisions(User user, Long noteId, Long before, int limit) {
+        findOwnedNote(user, noteId);
+        int pageSize = limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        long upperBound = before == null ? Long.MAX_VALUE : before;
+        return revisionRepository.findSummaries(noteId, upperBound, PageRequest.of(0, pageSize));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<NoteRevisionResponse> getRevision(User user, Long noteId, long revision) {
+        Note note = findOwnedNote(user, noteId);
+        NoteRevisionResponse recorded = revisionRecorder.findRevision(noteId, revision);
+        if (recorded != null) {
+            return Optional.of(recorded);
+        }
+        // A note that was never edited has no history; its only version is the current one
+        if (revision == note.getVersion() && !note.isDeleted()) {
+            return Optional.of(new NoteRevisionResponse(noteId, revision, note.getTitle(), note.getContent(),
+                    note.getUpdatedAt()));
+        }
+        return Optional.empty();
+    }
+
+    private Note findOwnedNote(User user, Long noteId) {
+        return noteRepository.findByIdAndUser(noteId, user)
+                .orElseThrow(() -> new RuntimeException("Note not found"));
+    }
+}
@@ -1,30 +1,192 @@
 package com.notedapp.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notedapp.dto.note.NoteBatchOperation;
+import com.notedapp.dto.note.NoteBatchRequest;
+import com.notedapp.dto.note.NoteBatchResult;
+import com.notedapp.dto.note.NoteChange;
+import com.notedapp.dto.note.NoteChangesResponse;
+import com.notedapp.dto.note.NoteCursor;
+import com.notedapp.dto.note.NotePageResponse;
 import com.notedapp.dto.note.NoteRequest;
 import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.dto.note.NoteSummaryPageResponse;
+import com.notedapp.dto.note.NoteSummaryResponse;
 import com.notedapp.entity.Note;
+import com.notedapp.entity.NoteContentCodec;
 import com.notedapp.entity.User;
 import com.notedapp.repository.NoteRepository;
+import com.notedapp.repository.UserRepository;
+import com.notedapp.search.NoteSearchIndex;
+import com.notedapp.service.ChangeCursorExpiredException;
 import com.notedapp.service.NoteService;
+import com.notedapp.service.NoteVersionConflictException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class NoteServiceImpl implements NoteService {
 
+    // Oldest first. Ordered by every column of idx_notes_user_live_updated, constant ones included, so
+    // that H2 as well as MySQL read the rows in index order instead of sorting (and buffering) them first
+    private static final String EXPORT_QUERY = "SELECT n FROM Note n WHERE n.user = :user AND n.isDeleted = false "
+            + "ORDER BY n.user.id, n.isDeleted, n.updatedAt, n.id";
+
+    // Search before the index is ready, newest first. Plain rows are matched by the database; compressed
+    // ones are always returned and matched in Java, since their full body is not in the content column
+    private static final String FALLBACK_SEARCH_QUERY = "SELECT n FROM Note n WHERE n.user = :user AND n.isDeleted = false "
+            + "AND (n.compressedContent IS NOT NULL OR LOWER(n.title) LIKE :pattern ESCAPE '\\' "
+            + "OR LOWER(n.content) LIKE :pattern ESCAPE '\\') "
+            + "ORDER BY n.user.id DESC, n.isDeleted DESC, n.updatedAt DESC, n.id DESC";
+
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    @Autowired
+    private NoteRevisionRecorder revisionRecorder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary indexSearchResults;
+    private DistributionSummary databaseSearchResults;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${notes.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${notes.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${notes.summary.preview-length:200}")
+    private int previewLength;
+
+    @Value("${notes.batch.max-operations:500}")
+    private int maxBatchOperations;
+
+    @Value("${notes.search.max-page-size:100}")
+    private int maxSearchPageSize;
+
+    // Applied to the export and fallback search queries only. On MySQL, Integer.MIN_VALUE makes Connector/J stream the rows
+    // one by one; any positive size needs useCursorFetch, which would then apply to every query
+    @Value("${notes.export.fetch-size:500}")
+    private int exportFetchSize;
+
+    @PostConstruct
+    void initMetrics() {
+        indexSearchResults = searchResultsSummary("index");
+        databaseSearchResults = searchResultsSummary("database");
+    }
+
+    private DistributionSummary searchResultsSummary(String source) {
+        return DistributionSummary.builder("krabbel.search.results")
+                .description("Notes returned per search request")
+                .baseUnit("notes")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
     @Override
-    public List<NoteResponse> getUserNotes(User user) {
-        return noteRepository.findByUserAndIsDeletedFalseOrderByUpdatedAtDesc(user)
-                .stream()
-                .map(this::convertToResponse)
+    @Transactional(readOnly = true)
+    public NotePageResponse getUserNotes(User user, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<Note> notes;
+        if (cursor == null || cursor.isBlank()) {
+            notes = noteRepository.findFirstPage(user, pageable);
+        } else {
+            NoteCursor position = NoteCursor.decode(cursor);
+            notes = noteRepository.findPageAfter(user, position.getUpdatedAt(), position.getId(), pageable);
+        }
+
+        boolean hasMore = notes.size() > pageSize;
+        if (hasMore) {
+            notes = notes.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Note last = notes.get(notes.size() - 1);
+            nextCursor = new NoteCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        List<NoteResponse> page = notes.stream()
+                .map(NoteResponse::from)
                 .collect(Collectors.toList());
+        return new NotePageResponse(page, nextCursor, hasMore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteSummaryPageResponse getNoteSummaries(User user, String cursor, int limit) {
+        int pageSize = pageSize(limit);
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        List<NoteSummaryResponse> summaries;
+        if (cursor == null || cursor.isBlank()) {
+            summaries = noteRepository.findFirstSummaryPage(user, previewLength, pageable);
+        } else {
+            NoteCursor position = NoteCursor.decode(cursor);
+            summaries = noteRepository.findSummaryPageAfter(
+                    user, position.getUpdatedAt(), position.getId(), previewLength, pageable);
+        }
+
+        boolean hasMore = summaries.size() > pageSize;
+        String nextCursor = null;
+        if (hasMore) {
+            summaries = summaries.subList(0, pageSize);
+            NoteSummaryResponse last = summaries.get(pageSize - 1);
+            nextCursor = new NoteCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+        return new NoteSummaryPageResponse(summaries, nextCursor, hasMore);
+    }
+
+    private int pageSize(int limit) {
+        return limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
     }
 
     @Override
@@ -34,58 +196,394 @@ public class NoteServiceImpl implements NoteService {
         note.setUser(user);
         note.setTitle(request.getTitle());
         note.setContent(request.getContent());
+        note.setChangeSeq(nextChangeSeq(user, 1));
         
         Note savedNote = noteRepository.save(note);
-        return convertToResponse(savedNote);
+        reindexAfterCommit(user, savedNote);
+        return NoteResponse.from(savedNote);
     }
 
     @Override
     @Transactional
     public NoteResponse updateNote(User user, Long noteId, NoteRequest request) {
+        return updateNote(user, noteId, request, null);
+    }
+
+    @Override
+    @Transactional
+    public NoteResponse updateNote(User user, Long noteId, NoteRequest request, Long expectedChangeSeq) {
+        if (request.getVersion() != null) {
+            return updateIfVersion(user, noteId, request, expectedChangeSeq);
+        }
+
+        // Unversioned clients: read-modify-write, still guarded by @Version between the read and the flush
         Note note = noteRepository.findByIdAndUser(noteId, user)
                 .orElseThrow(() -> new RuntimeException("Note not found"));
+        if (expectedChangeSeq != null && note.getChangeSeq() != expectedChangeSeq) {
+            throw new OptimisticLockingFailureException("Note " + noteId + " has been modified");
+        }
+        NoteRevisionRecorder.Base revisionBase = revisionRecorder.baseFor(note);
         
         note.setTitle(request.getTitle());
         note.setContent(request.getContent());
+        note.setChangeSeq(nextChangeSeq(user, 1));
         
-        Note updatedNote = noteRepository.save(note);
-        return convertToResponse(updatedNote);
+        Note updatedNote = noteRepository.saveAndFlush(note);
+        revisionRecorder.record(noteId, revisionBase, updatedNote.getVersion(), request.getTitle(), request.getContent());
+        reindexAfterCommit(user, updatedNote);
+        return NoteResponse.from(updatedNote);
+    }
+
+    /**
+     * Writes the note with one conditional UPDATE instead of loading it first. The response is built
+     * from what was written, so createdAt is not included (CachingNoteService fills it in when the note
+     * is cached).
+     */
+    private NoteResponse updateIfVersion(User user, Long noteId, NoteRequest request, Long expectedChangeSeq) {
+        long version = request.getVersion();
+        String title = request.getTitle();
+        String content = request.getContent();
+        byte[] compressed = NoteContentCodec.compress(content);
+        String storedContent = compressed == null ? content : NoteContentCodec.inlinePrefix(content);
+        // The column keeps whole seconds; truncate so the response matches the stored row
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long changeSeq = nextChangeSeq(user, 1);
+        NoteRevisionRecorder.Base revisionBase = revisionBaseFor(user, noteId, version);
+
+        int updated = noteRepository.updateIfVersion(noteId, user, version, expectedChangeSeq,
+                title, storedContent, compressed, now, changeSeq);
+        if (updated == 0) {
+            // Rolls back the change sequence bump along with the transaction
+            throw writeConflict(user, noteId, expectedChangeSeq);
+        }
+        revisionRecorder.record(noteId, revisionBase, version + 1, title, content);
+
+        afterCommit(() -> searchIndex.index(user.getId(), noteId, title, content, changeSeq));
+        return new NoteResponse(noteId, title, content, null, now, changeSeq, version + 1);
+    }
+
+    /**
+     * The version being replaced, for the revision history. It is rebuilt from the history when that
+     * reaches the version, so only a note's first edit has to load the note. Null if the note is not at
+     * that version, in which case the update fails anyway.
+     */
+    private NoteRevisionRecorder.Base revisionBaseFor(User user, Long noteId, long version) {
+        if (!revisionRecorder.isEnabled()) {
+            return null;
+        }
+        NoteRevisionRecorder.Base base = revisionRecorder.baseFromHistory(noteId, version);
+        if (base != null) {
+            return base;
+        }
+        return noteRepository.findByIdAndUser(noteId, user)
+                .filter(note -> !note.isDeleted() && note.getVersion() == version)
+                .map(revisionRecorder::baseFor)
+                .orElse(null);
     }
 
     @Override
     @Transactional
     public void deleteNote(User user, Long noteId) {
-        Note note = noteRepository.findByIdAndUser(noteId, user)
-                .orElseThrow(() -> new RuntimeException("Note not found"));
-        
-        note.setDeleted(true);
-        noteRepository.save(note);
+        deleteNote(user, noteId, null);
+    }
+
+    @Override
+    @Transactional
+    public void deleteNote(User user, Long noteId, Long expectedVersion) {
+        long changeSeq = nextChangeSeq(user, 1);
+        int deleted = noteRepository.softDelete(noteId, user, expectedVersion, LocalDateTime.now(), changeSeq);
+        if (deleted == 0) {
+            Boolean alreadyDeleted = noteRepository.findDeletedFlagByIdAndUser(noteId, user).orElse(null);
+            if (alreadyDeleted == null) {
+                throw new RuntimeException("Note not found");
+            }
+            if (!alreadyDeleted) {
+                throw new NoteVersionConflictException(noteId);
+            }
+            // Already deleted: deleting twice is a no-op (the unused change sequence value is just a gap)
+            return;
+        }
+        afterCommit(() -> searchIndex.remove(user.getId(), noteId));
+    }
+
+    private RuntimeException writeConflict(User user, Long noteId, Long expectedChangeSeq) {
+        Boolean deleted = noteRepository.findDeletedFlagByIdAndUser(noteId, user).orElse(null);
+        if (deleted == null || deleted) {
+            return new RuntimeException("Note not found");
+        }
+        if (expectedChangeSeq != null
+                && !noteRepository.findChangeSeqByIdAndUser(noteId, user).orElse(-1L).equals(expectedChangeSeq)) {
+            return new OptimisticLockingFailureException("Note " + noteId + " has been modified");
+        }
+        return new NoteVersionConflictException(noteId);
+    }
+
+    @Override
+    @Transactional
+    public List<NoteBatchResult> applyBatch(User user, NoteBatchRequest request) {
+        List<NoteBatchOperation> operations = request.getOperations();
+        if (operations.size() > maxBatchOperations) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxBatchOperations + " operations");
+        }
+
+        // Load every note targeted by an update or delete with a single query
+        Set<Long> targetIds = operations.stream()
+                .filter(op -> op.getType() != null && op.getType() != NoteBatchOperation.Type.CREATE && op.getId() != null)
+                .map(NoteBatchOperation::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Note> targets = new HashMap<>();
+        if (!targetIds.isEmpty()) {
+            noteRepository.findByIdInAndUser(targetIds, user).stream()
+                    .filter(note -> !note.isDeleted())
+                    .forEach(note -> targets.put(note.getId(), note));
+        }
+
+        // Revision bases must be taken before the loop below modifies the notes
+        Set<Long> updatedIds = operations.stream()
+                .filter(op -> op.getType() == NoteBatchOperation.Type.UPDATE && op.getId() != null)
+                .map(NoteBatchOperation::getId)
+                .collect(Collectors.toSet());
+        Map<Long, NoteRevisionRecorder.Base> revisionBases = revisionRecorder.basesFor(targets.values().stream()
+                .filter(note -> updatedIds.contains(note.getId()))
+                .collect(Collectors.toList()));
+
+        NoteBatchResult[] results = new NoteBatchResult[operations.size()];
+        Note[] touched = new Note[operations.size()];
+        List<Note> created = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            NoteBatchOperation op = operations.get(i);
+            if (op.getType() == null) {
+                results[i] = NoteBatchResult.failed(i, NoteBatchResult.Status.INVALID, "Operation type is required");
+                continue;
+            }
+            if (op.getType() != NoteBatchOperation.Type.DELETE && (isBlank(op.getTitle()) || isBlank(op.getContent()))) {
+                results[i] = NoteBatchResult.failed(i, NoteBatchResult.Status.INVALID, "Title and content are required");
+                continue;
+            }
+
+            if (op.getType() == NoteBatchOperation.Type.CREATE) {
+                Note note = new Note();
+                note.setUser(user);
+                note.setTitle(op.getTitle());
+                note.setContent(op.getContent());
+                created.add(note);
+                touched[i] = note;
+                continue;
+            }
+
+            Note note = op.getId() == null ? null : targets.get(op.getId());
+            if (note == null) {
+                results[i] = NoteBatchResult.failed(i, NoteBatchResult.Status.NOT_FOUND, "Note not found");
+                continue;
+            }
+            if (op.getVersion() != null && op.getVersion() != note.getVersion()) {
+                results[i] = NoteBatchResult.failed(i, NoteBatchResult.Status.CONFLICT, "Note has been modified");
+                continue;
+            }
+            if (op.getType() == NoteBatchOperation.Type.UPDATE) {
+                note.setTitle(op.getTitle());
+                note.setContent(op.getContent());
+            } else {
+                note.setDeleted(true);
+                targets.remove(op.getId());
+            }
+            touched[i] = note;
+        }
+
+        // One counter bump for the whole batch, handed out in operation order
+        int writes = (int) Arrays.stream(touched).filter(Objects::nonNull).count();
+        if (writes > 0) {
+            long changeSeq = nextChangeSeq(user, writes);
+            for (Note note : touched) {
+                if (note != null) {
+                    note.setChangeSeq(changeSeq++);
+                }
+            }
+        }
+
+        // Inserts and dirty-checked updates are flushed together as JDBC batches
+        noteRepository.saveAll(created);
+        noteRepository.flush();
+
+        // One revision per updated note, however many operations of the batch touched it
+        for (Note note : Arrays.stream(touched).filter(Objects::nonNull).distinct().collect(Collectors.toList())) {
+            NoteRevisionRecorder.Base base = revisionBases.get(note.getId());
+            if (base != null && !note.isDeleted()) {
+                revisionRecorder.record(note.getId(), base, note.getVersion(), note.getTitle(), note.getContent());
+            }
+        }
+
+        for (int i = 0; i < operations.size(); i++) {
+            Note note = touched[i];
+            if (note == null) {
+                continue;
+            }
+            NoteBatchOperation.Type type = operations.get(i).getType();
+            if (type == NoteBatchOperation.Type.DELETE) {
+                results[i] = new NoteBatchResult(i, NoteBatchResult.Status.DELETED, null, null);
+                Long noteId = note.getId();
+                afterCommit(() -> searchIndex.remove(user.getId(), noteId));
+            } else {
+                NoteBatchResult.Status status = type == NoteBatchOperation.Type.CREATE
+                        ? NoteBatchResult.Status.CREATED
+                        : NoteBatchResult.Status.UPDATED;
+                results[i] = new NoteBatchResult(i, status, NoteResponse.from(note), null);
+                reindexAfterCommit(user, note);
+            }
+        }
+        return List.of(results);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public NoteChangesResponse getChanges(User user, long since, int limit) {
+        // A full resync (since = 0) only needs live notes, so it is never affected by the purge
+        if (since > 0 && since < userRepository.findPurgedChangeSeq(user.getId())) {
+            throw new ChangeCursorExpiredException(since);
+        }
+        int pageSize = pageSize(limit);
+        List<Note> notes = noteRepository.findChangesSince(user, since, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = notes.size() > pageSize;
+        if (hasMore) {
+            notes = notes.subList(0, pageSize);
+        }
+        long cursor = notes.isEmpty() ? since : notes.get(notes.size() - 1).getChangeSeq();
+
+        List<NoteChange> changes = notes.stream()
+                .map(note -> note.isDeleted()
+                        ? new NoteChange(note.getId(), note.getChangeSeq(), true, null, null, null,
+                                note.getUpdatedAt(), note.getVersion())
+                        : new NoteChange(note.getId(), note.getChangeSeq(), false, note.getTitle(), note.getContent(),
+                                note.getCreatedAt(), note.getUpdatedAt(), note.getVersion()))
+                .collect(Collectors.toList());
+        return new NoteChangesResponse(changes, cursor, hasMore);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportNotes(User user, OutputStream out) throws IOException {
+        long exported = 0;
+        try (Stream<Note> notes = entityManager.createQuery(EXPORT_QUERY, Note.class)
+                .setParameter("user", user)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .getResultStream()) {
+            for (Note note : (Iterable<Note>) notes::iterator) {
+                out.write(objectMapper.writeValueAsBytes(NoteResponse.from(note)));
+                out.write('\n');
+                // Drop the entity from the persistence context so memory stays flat however many notes stream by
+                entityManager.detach(note);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Reserves {@code count} consecutive change sequence values for the user and returns the first.
+     * The UPDATE row-locks the user until commit, serializing that user's writes.
+     */
+    private long nextChangeSeq(User user, int count) {
+        userRepository.advanceNoteChangeSeq(user.getId(), count);
+        return userRepository.findNoteChangeSeq(user.getId()) - count + 1;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> findNoteChangeSeq(User user, Long noteId) {
+        return noteRepository.findChangeSeqByIdAndUser(noteId, user);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getListVersion(User user) {
+        // Every note write advances this counter, so it changes whenever any list page could
+        return userRepository.findNoteChangeSeq(user.getId());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public NoteResponse getNote(User user, Long noteId) {
         Note note = noteRepository.findByIdAndUser(noteId, user)
                 .orElseThrow(() -> new RuntimeException("Note not found"));
         
-        return convertToResponse(note);
+        return NoteResponse.from(note);
     }
 
     @Override
-    public List<NoteResponse> searchNotes(User user, String keyword) {
-        return noteRepository.findByUserAndIsDeletedFalseAndTitleContainingIgnoreCaseOrUserAndIsDeletedFalseAndContentContainingIgnoreCase(
-                user, keyword, user, keyword)
+    @Transactional(readOnly = true)
+    public List<NoteResponse> searchNotes(User user, String keyword, int page, int size) {
+        int pageSize = size <= 0 ? maxSearchPageSize : Math.min(size, maxSearchPageSize);
+        int offset = Math.max(page, 0) * pageSize;
+
+        if (!searchIndex.isReady()) {
+            // Index is still being rebuilt after startup; stream the candidate rows meanwhile and stop
+            // once the page is full, so neither the user's whole library nor every body is held at once
+            String needle = keyword.toLowerCase(Locale.ROOT);
+            String pattern = "%" + needle.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            List<NoteResponse> results = new ArrayList<>();
+            int skipped = 0;
+            try (Stream<Note> notes = entityManager.createQuery(FALLBACK_SEARCH_QUERY, Note.class)
+                    .setParameter("user", user)
+                    .setParameter("pattern", pattern)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                    .getResultStream()) {
+                Iterator<Note> candidates = notes.iterator();
+                while (results.size() < pageSize && candidates.hasNext()) {
+                    Note note = candidates.next();
+                    // Only compressed rows are inflated, and only when the title does not match already
+                    if (note.getTitle().toLowerCase(Locale.ROOT).contains(needle)
+                            || note.getContent().toLowerCase(Locale.ROOT).contains(needle)) {
+                        if (skipped < offset) {
+                            skipped++;
+                        } else {
+                            results.add(NoteResponse.from(note));
+                        }
+                    }
+                    entityManager.detach(note);
+                }
+            }
+            databaseSearchResults.record(results.size());
+            return results;
+        }
+
+        List<Long> rankedIds = searchIndex.search(user.getId(), keyword, offset, pageSize);
+        if (rankedIds.isEmpty()) {
+            indexSearchResults.record(0);
+            return List.of();
+        }
+        Map<Long, Note> notesById = noteRepository.findAllById(rankedIds)
                 .stream()
-                .map(this::convertToResponse)
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+        List<NoteResponse> results = rankedIds.stream()
+                .map(notesById::get)
+                .filter(Objects::nonNull)
+                .filter(note -> !note.isDeleted())
+                .map(NoteResponse::from)
                 .collect(Collectors.toList());
+        indexSearchResults.record(results.size());
+        return results;
     }
-    
-    private NoteResponse convertToResponse(Note note) {
-        return new NoteResponse(
-                note.getId(),
-                note.getTitle(),
-                note.getContent(),
-                note.getCreatedAt(),
-                note.getUpdatedAt()
-        );
+
+    private void reindexAfterCommit(User user, Note note) {
+        afterCommit(() -> searchIndex.index(user.getId(), note.getId(), note.getTitle(), note.getContent(), note.getChangeSeq()));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 } 
\ No newline at end of file
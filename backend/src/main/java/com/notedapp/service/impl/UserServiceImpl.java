@@ -3,9 +3,13 @@ package com.notedapp.service.impl;
 import com.notedapp.dto.auth.RegisterRequest;
 import com.notedapp.entity.User;
 import com.notedapp.repository.UserRepository;
+import com.notedapp.security.ApiKeyHasher;
+import com.notedapp.security.ApiKeyPrincipalCache;
+import com.notedapp.security.UserPrincipalCache;
 import com.notedapp.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -15,7 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 
 @Service
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -23,6 +27,15 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserPrincipalCache principalCache;
+
+    @Autowired
+    private ApiKeyPrincipalCache apiKeyPrincipalCache;
+
+    @Autowired
+    private LastLoginWriter lastLoginWriter;
+
     @Override
     @Transactional
     public User register(RegisterRequest request) {
@@ -34,31 +47,59 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             throw new RuntimeException("Email is already in use");
         }
 
+        String apiKeyHash = request.getApiKey() == null || request.getApiKey().isBlank()
+                ? null
+                : ApiKeyHasher.hash(request.getApiKey());
+        if (apiKeyHash != null && userRepository.existsByApiKeyHash(apiKeyHash)) {
+            throw new RuntimeException("API key is already in use");
+        }
+
         User user = new User();
         user.setUsername(request.getUsername());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setEmail(request.getEmail());
         user.setRole(User.Role.USER);
-        user.setApiKey(request.getApiKey());
+        user.setApiKeyHash(apiKeyHash);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        principalCache.invalidate(savedUser.getUsername());
+        if (savedUser.getApiKeyHash() != null) {
+            // A request made with this key before registration may have been cached as unknown
+            apiKeyPrincipalCache.invalidate(savedUser.getApiKeyHash());
+        }
+        return savedUser;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public User findByUsername(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    @Override
+    public void recordLogin(User user) {
+        // Written asynchronously and coalesced per user, see LastLoginWriter
+        lastLoginWriter.record(user.getId(), LocalDateTime.now());
+    }
+
     @Override
     @Transactional
-    public void updateLastLogin(String username) {
-        User user = findByUsername(username);
-        user.setLastLogin(LocalDateTime.now());
-        userRepository.save(user);
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = findByUsername(userDetails.getUsername());
+        user.setPassword(newPassword);
+        User savedUser = userRepository.save(user);
+        principalCache.invalidate(savedUser.getUsername());
+        if (savedUser.getApiKeyHash() != null) {
+            // The principal cached for the user's API key is the same user, still with the old password
+            apiKeyPrincipalCache.invalidate(savedUser.getApiKeyHash());
+        }
+        return savedUser;
     }
 
+    // Read-write on purpose: authentication always reads the primary, never a possibly lagging replica
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return findByUsername(username);
     }
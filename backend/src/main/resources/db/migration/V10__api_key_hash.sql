@@ -0,0 +1,14 @@
+-- API keys are looked up by hash instead of being stored in plaintext
+-- ApiKeyAuthenticationFilter hashes the X-API-Key header with SHA-256 (lowercase hex, as SHA2(..., 256)
+-- returns) and finds the user through the unique index. Existing keys are hashed in place; if several
+-- users share a plaintext key only the oldest account keeps it, since a key must identify one user.
+
+ALTER TABLE users ADD COLUMN api_key_hash CHAR(64) NULL;
+
+UPDATE users u
+JOIN (SELECT MIN(id) AS id FROM users WHERE api_key IS NOT NULL AND api_key <> '' GROUP BY api_key) k ON k.id = u.id
+SET u.api_key_hash = SHA2(u.api_key, 256);
+
+CREATE UNIQUE INDEX idx_users_api_key_hash ON users (api_key_hash);
+
+ALTER TABLE users DROP COLUMN api_key;
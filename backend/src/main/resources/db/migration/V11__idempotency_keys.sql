@@ -0,0 +1,12 @@
+-- Idempotency-Key store shared by all instances (notes.idempotency.store=jdbc)
+-- idem_key is "<user id>:<client key>". A row without response_json is a claim by an execution still
+-- running; it expires after the short lease so a crashed instance cannot block the key. Completed rows
+-- are kept for notes.idempotency.ttl-hours and replayed to retries.
+
+CREATE TABLE idempotency_keys (
+    idem_key VARCHAR(300) NOT NULL PRIMARY KEY,
+    fingerprint CHAR(64) NOT NULL,
+    response_json LONGTEXT NULL,
+    expires_at TIMESTAMP(3) NOT NULL,
+    INDEX idx_idempotency_keys_expires (expires_at)
+);
@@ -0,0 +1,22 @@
+-- Revision history of edited notes
+-- Each row is one version of a note: a deflated snapshot, or a delta against the previous revision.
+-- snapshot_revision names the snapshot a row's delta chain starts from, so rebuilding a version is a
+-- single range scan of the unique key. Ids come from a pooled generator like note_seq (see V3).
+
+CREATE TABLE note_revisions (
+    id BIGINT NOT NULL PRIMARY KEY,
+    note_id BIGINT NOT NULL,
+    revision BIGINT NOT NULL,
+    snapshot_revision BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    payload LONGBLOB NOT NULL,
+    content_length INT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    UNIQUE KEY uk_note_revisions_note_revision (note_id, revision)
+);
+
+CREATE TABLE IF NOT EXISTS note_revision_seq (
+    next_val BIGINT
+);
+
+INSERT INTO note_revision_seq (next_val) VALUES (1);
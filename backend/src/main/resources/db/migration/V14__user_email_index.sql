@@ -0,0 +1,4 @@
+-- Registration checks whether an email address is taken (existsByEmail); without an index that read
+-- every row of users. Not unique: existing accounts may share an address.
+
+CREATE INDEX idx_users_email ON users (email);
@@ -0,0 +1,8 @@
+-- Indexes for the hot note queries
+
+-- Serves every per-user listing: filters on (user_id, is_deleted) and walks updated_at, id in index
+-- order, so keyset pages (ORDER BY updated_at DESC, id DESC LIMIT n) need neither a scan nor a filesort.
+-- Its leading user_id column also satisfies the foreign key, so MySQL drops the implicit FK index.
+CREATE INDEX idx_notes_user_live_updated ON notes (user_id, is_deleted, updated_at, id);
+
+-- findByIdAndUser (WHERE id = ? AND user_id = ?) is a primary key point lookup; no extra index needed.
@@ -0,0 +1,12 @@
+-- Pooled id generator for notes
+-- IDENTITY ids force Hibernate to execute every INSERT on its own to read the generated key, which
+-- disables JDBC batching. MySQL has no sequences, so Hibernate emulates "note_seq" with this table
+-- and hands out ids in blocks of 50 (allocationSize on Note.id).
+
+CREATE TABLE IF NOT EXISTS note_seq (
+    next_val BIGINT
+);
+
+-- Start one full allocation block above the current maximum so no generated id can collide
+INSERT INTO note_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 51 FROM notes;
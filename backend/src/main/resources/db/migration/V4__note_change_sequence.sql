@@ -0,0 +1,20 @@
+-- Per-user change sequence for delta sync
+-- Every note write bumps users.note_change_seq inside its transaction and stamps the note with the
+-- new value. The row lock on the user serializes that user's writes, so sequence order equals commit
+-- order and a client reading "changes since N" can never skip a change that commits later.
+
+ALTER TABLE users ADD COLUMN note_change_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE notes ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill existing notes in edit order
+UPDATE notes n
+JOIN (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY updated_at, id) AS seq
+    FROM notes
+) ordered ON n.id = ordered.id
+SET n.change_seq = ordered.seq;
+
+UPDATE users u
+SET u.note_change_seq = (SELECT COALESCE(MAX(n.change_seq), 0) FROM notes n WHERE n.user_id = u.id);
+
+CREATE INDEX idx_notes_user_change ON notes (user_id, change_seq);
@@ -0,0 +1,6 @@
+-- Optional compressed storage for large note bodies
+-- When notes.storage.compression.enabled is set, bodies above the threshold are stored deflated in
+-- content_compressed and content keeps only the inline prefix used for list previews. Existing rows
+-- are converted in the background by NoteCompressionBackfill, not here, to keep the migration short.
+
+ALTER TABLE notes ADD COLUMN content_compressed LONGBLOB NULL;
@@ -0,0 +1,5 @@
+-- Optimistic locking for notes
+-- Versioned writes are a single conditional UPDATE ... WHERE id = ? AND user_id = ? AND version = ?
+-- that bumps the version; a miss is reported to the client as 409 Conflict.
+
+ALTER TABLE notes ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,22 @@
+-- Purge of soft-deleted notes
+-- DeletedNotePurger walks tombstones older than the retention window in (updated_at, id) order and
+-- moves them to notes_archive (or deletes them). users.purged_change_seq records the newest purged
+-- tombstone per user so that delta sync can reject cursors that would miss those deletions.
+
+CREATE INDEX idx_notes_deleted_updated ON notes (is_deleted, updated_at);
+
+ALTER TABLE users ADD COLUMN purged_change_seq BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE notes_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content TEXT NOT NULL,
+    content_compressed LONGBLOB NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    change_seq BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    archived_at TIMESTAMP NOT NULL,
+    INDEX idx_notes_archive_user (user_id)
+);
@@ -0,0 +1,11 @@
+-- Replication heartbeat for read/write routing
+-- ReplicaLagMonitor stores the primary's NOW(3) here and reads it back from the read replica; the
+-- difference to the primary's clock is the replica lag, and the value is the newest write the replica
+-- has applied. Both sides use the database clock, so drift between the instances does not matter.
+
+CREATE TABLE replication_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat_at DATETIME(3) NOT NULL
+);
+
+INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, '1970-01-01 00:00:00.000');
@@ -0,0 +1,14 @@
+-- Note cache invalidation log
+-- With notes.cache.invalidation-bus=jdbc, every note write appends a row here and each instance polls
+-- for rows newer than the last one it applied to drop the affected entries from its NoteCache.
+-- Rows are only needed for a few poll intervals and are deleted after notes.cache.jdbc-bus.retention-minutes.
+
+CREATE TABLE note_cache_invalidations (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    origin VARCHAR(36) NOT NULL,
+    scope VARCHAR(10) NOT NULL,
+    user_id BIGINT NOT NULL,
+    note_id BIGINT NULL,
+    created_at TIMESTAMP NOT NULL,
+    INDEX idx_note_cache_invalidations_created (created_at)
+);
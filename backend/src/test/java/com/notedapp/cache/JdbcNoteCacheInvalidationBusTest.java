@@ -0,0 +1,133 @@
+package com.notedapp.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcNoteCacheInvalidationBusTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final List<NoteCacheInvalidation> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bus-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // As in V9__note_cache_invalidations.sql
+        jdbcTemplate.execute("CREATE TABLE note_cache_invalidations (id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                + "origin VARCHAR(36) NOT NULL, scope VARCHAR(10) NOT NULL, user_id BIGINT NOT NULL, "
+                + "note_id BIGINT NULL, created_at TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private JdbcNoteCacheInvalidationBus newBus(long reorderWindowMillis) {
+        JdbcNoteCacheInvalidationBus bus = new JdbcNoteCacheInvalidationBus(jdbcTemplate, 60, reorderWindowMillis);
+        bus.subscribe(received::add);
+        return bus;
+    }
+
+    private static NoteCacheInvalidation invalidation(long userId, Long noteId) {
+        return new NoteCacheInvalidation("origin", noteId == null
+                ? NoteCacheInvalidation.Scope.USER : NoteCacheInvalidation.Scope.NOTE, userId, noteId);
+    }
+
+    @Test
+    void deliversEachPublishedMessageOnce() {
+        JdbcNoteCacheInvalidationBus bus = newBus(60_000);
+        bus.publish(invalidation(1, 10L));
+        bus.publish(invalidation(2, null));
+
+        bus.poll();
+        bus.poll();
+
+        assertThat(received).containsExactly(invalidation(1, 10L), invalidation(2, null));
+    }
+
+    @Test
+    void ignoresMessagesFromBeforeItStarted() {
+        newBus(60_000).publish(invalidation(1, 10L));
+        received.clear();
+
+        JdbcNoteCacheInvalidationBus bus = newBus(60_000);
+        bus.poll();
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void deliversARowThatCommitsAfterRowsWithHigherIds() throws Exception {
+        JdbcNoteCacheInvalidationBus bus = newBus(60_000);
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            // Takes the lower id, but commits only after the next insert has been polled
+            insert(slow, 1, 10L);
+            bus.publish(invalidation(2, 20L));
+            bus.poll();
+            assertThat(received).containsExactly(invalidation(2, 20L));
+
+            slow.commit();
+        }
+        bus.poll();
+
+        assertThat(received).containsExactly(invalidation(2, 20L), invalidation(1, 10L));
+    }
+
+    @Test
+    void givesUpOnGapsOlderThanTheReorderWindow() throws Exception {
+        JdbcNoteCacheInvalidationBus bus = newBus(0);
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            insert(slow, 1, 10L);
+            bus.publish(invalidation(2, 20L));
+            bus.poll();
+
+            slow.commit();
+        }
+        bus.poll();
+
+        assertThat(received).containsExactly(invalidation(2, 20L));
+    }
+
+    @Test
+    void readsBacklogsLargerThanOnePollBatch() {
+        JdbcNoteCacheInvalidationBus bus = newBus(60_000);
+        for (long note = 1; note <= 2500; note++) {
+            bus.publish(invalidation(1, note));
+        }
+
+        bus.poll();
+        bus.publish(invalidation(1, 2501L));
+        bus.poll();
+
+        assertThat(received).hasSize(2501);
+        assertThat(received.get(2500)).isEqualTo(invalidation(1, 2501L));
+    }
+
+    private static void insert(Connection connection, long userId, Long noteId) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO note_cache_invalidations "
+                + "(origin, scope, user_id, note_id, created_at) VALUES ('origin', 'NOTE', ?, ?, ?)")) {
+            insert.setLong(1, userId);
+            insert.setLong(2, noteId);
+            insert.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            insert.executeUpdate();
+        }
+    }
+}
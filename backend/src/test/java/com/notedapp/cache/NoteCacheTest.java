@@ -0,0 +1,257 @@
+package com.notedapp.cache;
+
+import com.notedapp.dto.note.NotePageResponse;
+import com.notedapp.dto.note.NoteResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteCacheTest {
+
+    private static final Long USER = 1L;
+    private static final Long OTHER_USER = 2L;
+
+    private LocalNoteCacheInvalidationBus bus;
+    private NoteCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        bus = new LocalNoteCacheInvalidationBus();
+        cache = newCache(bus, 0);
+    }
+
+    private static NoteCache newCache(NoteCacheInvalidationBus bus, long remoteHoldMillis) {
+        return new NoteCache(bus, new SimpleMeterRegistry(), true, 1 << 20, 60, remoteHoldMillis, 1000);
+    }
+
+    private NoteResponse getNote(NoteCache cache, Long userId, Long noteId) {
+        return cache.get(userId, NoteCache.noteKey(noteId), "note", note -> 100, NoteResponse::copy,
+                () -> {
+                    loads.incrementAndGet();
+                    return note(noteId, "content " + noteId);
+                });
+    }
+
+    private NotePageResponse getPage(NoteCache cache, Long userId) {
+        return cache.get(userId, NoteCache.listKey("notes", null, 0), "page", page -> 100, NotePageResponse::copy,
+                () -> {
+                    loads.incrementAndGet();
+                    return new NotePageResponse(new ArrayList<>(List.of(note(1L, "a"), note(2L, "b"))), null, false);
+                });
+    }
+
+    private static NoteResponse note(Long id, String content) {
+        return new NoteResponse(id, "title " + id, content, LocalDateTime.now(), LocalDateTime.now(), id, 0);
+    }
+
+    @Test
+    void servesRepeatedReadsFromTheCache() {
+        getNote(cache, USER, 10L);
+        getNote(cache, USER, 10L);
+        getPage(cache, USER);
+        getPage(cache, USER);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.estimatedBytes()).isPositive();
+    }
+
+    @Test
+    void handsOutCopiesThatCallersMayModify() {
+        NoteResponse loaded = getNote(cache, USER, 10L);
+        loaded.setContent("changed by the first caller");
+        NoteResponse hit = getNote(cache, USER, 10L);
+        hit.setTitle("changed by the second caller");
+
+        assertThat(getNote(cache, USER, 10L).getContent()).isEqualTo("content 10");
+        assertThat(getNote(cache, USER, 10L).getTitle()).isEqualTo("title 10");
+
+        NotePageResponse page = getPage(cache, USER);
+        page.getNotes().get(0).setContent("changed");
+        page.getNotes().remove(1);
+        NotePageResponse again = getPage(cache, USER);
+        assertThat(again.getNotes()).hasSize(2);
+        assertThat(again.getNotes().get(0).getContent()).isEqualTo("a");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void noteInvalidationDropsTheNoteAndTheListsOnly() {
+        getNote(cache, USER, 10L);
+        getNote(cache, USER, 11L);
+        getPage(cache, USER);
+        getNote(cache, OTHER_USER, 10L);
+        loads.set(0);
+
+        cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+
+        getNote(cache, USER, 10L);
+        getPage(cache, USER);
+        assertThat(loads).hasValue(2);
+        getNote(cache, USER, 11L);
+        getNote(cache, OTHER_USER, 10L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void listInvalidationKeepsTheNotes() {
+        getNote(cache, USER, 10L);
+        getPage(cache, USER);
+        loads.set(0);
+
+        cache.invalidate(NoteCacheInvalidation.Scope.LISTS, USER, 12L);
+
+        getNote(cache, USER, 10L);
+        assertThat(loads).hasValue(0);
+        getPage(cache, USER);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void userInvalidationDropsEverythingOfTheUser() {
+        getNote(cache, USER, 10L);
+        getPage(cache, USER);
+        getNote(cache, OTHER_USER, 10L);
+        loads.set(0);
+
+        cache.invalidateUser(USER);
+
+        getNote(cache, USER, 10L);
+        getPage(cache, USER);
+        getNote(cache, OTHER_USER, 10L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotStoreALoadThatOverlappedAnInvalidation() {
+        Supplier<NoteResponse> racingLoad = () -> {
+            loads.incrementAndGet();
+            // A write commits and invalidates while this load is reading the old row
+            cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+            return note(10L, "old");
+        };
+        cache.get(USER, NoteCache.noteKey(10L), "note", note -> 100, NoteResponse::copy, racingLoad);
+
+        assertThat(getNote(cache, USER, 10L).getContent()).isEqualTo("content 10");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotStoreALoadWhenAnInvalidationRunsBetweenLoadAndStore() {
+        // The copier runs after the load has finished and before the value is stored
+        cache.get(USER, NoteCache.noteKey(10L), "note", note -> 100, note -> {
+            cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+            return note.copy();
+        }, () -> note(10L, "old"));
+
+        assertThat(getNote(cache, USER, 10L).getContent()).isEqualTo("content 10");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void neverServesAValueOlderThanTheLastCompletedInvalidation() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger invalidated = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger staleReads = new AtomicInteger();
+        Supplier<NoteResponse> load = () -> note(10L, Integer.toString(written.get()));
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                while (writing.get()) {
+                    int completed = invalidated.get();
+                    NoteResponse read = cache.get(USER, NoteCache.noteKey(10L), "note", note -> 100,
+                            NoteResponse::copy, load);
+                    if (Integer.parseInt(read.getContent()) < completed) {
+                        staleReads.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int write = 1; write <= 20_000; write++) {
+            written.set(write);
+            cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+            invalidated.set(write);
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(staleReads).hasValue(0);
+    }
+
+    @Test
+    void localBusDeliversToEveryCacheAndEachSkipsItsOwnMessages() {
+        List<NoteCacheInvalidation> received = new ArrayList<>();
+        bus.subscribe(received::add);
+        NoteCache otherInstance = newCache(bus, 0);
+        getNote(cache, USER, 10L);
+        getNote(otherInstance, USER, 10L);
+        loads.set(0);
+
+        cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+
+        assertThat(received).hasSize(1);
+        assertThat(cache.isLocal(received.get(0))).isTrue();
+        assertThat(otherInstance.isLocal(received.get(0))).isFalse();
+        getNote(otherInstance, USER, 10L);
+        getNote(cache, USER, 10L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void holdsOffCachingAUserAfterARemoteInvalidation() {
+        NoteCache otherInstance = newCache(bus, 60_000);
+        cache.invalidate(NoteCacheInvalidation.Scope.NOTE, USER, 10L);
+        loads.set(0);
+
+        // A replica may still return the old row, so nothing is cached for the user during the hold
+        getNote(otherInstance, USER, 10L);
+        getNote(otherInstance, USER, 10L);
+        getNote(otherInstance, OTHER_USER, 10L);
+        getNote(otherInstance, OTHER_USER, 10L);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void publishesInvalidationsEvenWhenDisabled() {
+        List<NoteCacheInvalidation> received = new ArrayList<>();
+        bus.subscribe(received::add);
+        NoteCache disabled = new NoteCache(bus, new SimpleMeterRegistry(), false, 1 << 20, 60, 0, 1000);
+
+        getNote(disabled, USER, 10L);
+        getNote(disabled, USER, 10L);
+        disabled.invalidate(NoteCacheInvalidation.Scope.LISTS, USER, 10L);
+
+        assertThat(loads).hasValue(2);
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadUsersWhenFull() {
+        NoteCache small = new NoteCache(bus, new SimpleMeterRegistry(), true,
+                3 * (100 + NoteCache.ENTRY_OVERHEAD_BYTES), 60, 0, 1000);
+        for (long user = 1; user <= 4; user++) {
+            getNote(small, user, 10L);
+        }
+        loads.set(0);
+
+        assertThat(small.estimatedBytes()).isLessThanOrEqualTo(3 * (100 + NoteCache.ENTRY_OVERHEAD_BYTES));
+        getNote(small, 4L, 10L);
+        assertThat(loads).hasValue(0);
+        getNote(small, 1L, 10L);
+        assertThat(loads).hasValue(1);
+    }
+}
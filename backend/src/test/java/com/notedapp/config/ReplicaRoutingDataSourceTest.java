@@ -0,0 +1,201 @@
+package com.notedapp.config;
+
+import com.notedapp.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between two H2 databases standing in for the primary and its replica. Replication is played
+ * by copying the heartbeat row by hand. The primary's clock runs five hours ahead of the application's,
+ * as with a database server in another time zone or with a badly skewed clock.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MS = 200;
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource replica;
+    private ReplicaLagMonitor monitor;
+    private Instance instance;
+
+    @BeforeEach
+    void setUp() {
+        String id = UUID.randomUUID().toString();
+        primary = database("primary-" + id);
+        replica = database("replica-" + id);
+        monitor = new ReplicaLagMonitor(primary, replica, MAX_LAG_MS, 50, new SimpleMeterRegistry());
+        instance = new Instance();
+
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("reader");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+        new JdbcTemplate(primary).execute("SHUTDOWN");
+        new JdbcTemplate(replica).execute("SHUTDOWN");
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;TIME ZONE=+05:00", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        // V8
+        jdbc.execute("CREATE TABLE replication_heartbeat (id INT NOT NULL PRIMARY KEY, beat_at DATETIME(3) NOT NULL)");
+        jdbc.update("INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, '1970-01-01 00:00:00.000')");
+        jdbc.execute("CREATE TABLE server (name VARCHAR(10))");
+        jdbc.update("INSERT INTO server (name) VALUES (?)", name.substring(0, name.indexOf('-')));
+        jdbc.execute("CREATE TABLE writes (id INT)");
+        return dataSource;
+    }
+
+    /** Applies everything committed on the primary so far to the replica, as far as routing can tell. */
+    private void replicate() {
+        LocalDateTime beat = new JdbcTemplate(primary)
+                .queryForObject("SELECT beat_at FROM replication_heartbeat WHERE id = 1", LocalDateTime.class);
+        new JdbcTemplate(replica).update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", beat);
+    }
+
+    /** A heartbeat after everything so far, replicated and seen by the monitor. */
+    private void catchUp() {
+        // Writes are stamped ahead by the uncertainty of the clock offset; real heartbeats are far apart
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        monitor.check();
+        replicate();
+        monitor.check();
+    }
+
+    private static void withRequest(MockHttpServletRequest request, MockHttpServletResponse response) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+    }
+
+    @Test
+    void readsFromThePrimaryUntilTheReplicaHasBeenChecked() {
+        assertThat(instance.read()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsFromTheReplicaOnceItHasCaughtUp() {
+        catchUp();
+
+        assertThat(monitor.isReplicaUsable()).isTrue();
+        assertThat(instance.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void stopsReadingFromAReplicaThatFallsBehind() throws Exception {
+        catchUp();
+        Thread.sleep(MAX_LAG_MS + 50);
+        monitor.check();
+
+        assertThat(monitor.isReplicaUsable()).isFalse();
+        assertThat(instance.read()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsOwnWriteFromThePrimaryUntilItIsReplicated() {
+        catchUp();
+        instance.write();
+
+        // The visible heartbeat predates the write on the primary's clock, even though the application's
+        // clock is five hours behind it
+        assertThat(instance.read()).isEqualTo("primary");
+
+        catchUp();
+        assertThat(instance.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void otherInstancesFollowTheLastWritePositionTheClientSendsBack() {
+        catchUp();
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        withRequest(new MockHttpServletRequest(), writeResponse);
+        instance.write();
+        String position = writeResponse.getHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER);
+        assertThat(position).isNotNull();
+
+        Instance other = new Instance();
+        MockHttpServletRequest withPosition = new MockHttpServletRequest();
+        withPosition.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, position);
+        withRequest(withPosition, new MockHttpServletResponse());
+        assertThat(other.read()).isEqualTo("primary");
+
+        // Without it, the other instance knows nothing about the write
+        withRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertThat(other.read()).isEqualTo("replica");
+
+        catchUp();
+        withRequest(withPosition, new MockHttpServletResponse());
+        assertThat(other.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void ignoresPositionsThatCannotHaveBeenIssuedYet() {
+        catchUp();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, Long.toString(Long.MAX_VALUE / 2));
+        withRequest(request, new MockHttpServletResponse());
+
+        assertThat(instance.read()).isEqualTo("replica");
+
+        request.removeHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER);
+        request.addHeader(ReplicaRoutingDataSource.LAST_WRITE_HEADER, "not a number");
+        assertThat(instance.read()).isEqualTo("replica");
+    }
+
+    /** One application instance: its own router, with its own memory of recent writes. */
+    private class Instance {
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        Instance() {
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, monitor, 1000, 30_000,
+                    new SimpleMeterRegistry());
+            routing.afterPropertiesSet();
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            jdbc = new JdbcTemplate(dataSource);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String read() {
+            return readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM server", String.class));
+        }
+
+        void write() {
+            readWrite.executeWithoutResult(status -> jdbc.update("INSERT INTO writes (id) VALUES (1)"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.notedapp.controller;
+
+import com.notedapp.dto.note.NoteRequest;
+import com.notedapp.entity.User;
+import com.notedapp.repository.UserRepository;
+import com.notedapp.service.NoteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class NoteExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setUsername("export-" + UUID.randomUUID().toString().substring(0, 8));
+        owner.setPassword("unused");
+        owner.setRole(User.Role.USER);
+        owner = userRepository.save(owner);
+        for (int i = 0; i < 3; i++) {
+            NoteRequest request = new NoteRequest();
+            request.setTitle("note " + i);
+            request.setContent("content " + i);
+            noteService.createNote(owner, request);
+        }
+    }
+
+    @Test
+    void acceptsGzipOnlyWithANonZeroQuality() {
+        assertThat(NoteController.acceptsGzip(null)).isFalse();
+        assertThat(NoteController.acceptsGzip("")).isFalse();
+        assertThat(NoteController.acceptsGzip("gzip")).isTrue();
+        assertThat(NoteController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(NoteController.acceptsGzip("br, x-gzip")).isTrue();
+        assertThat(NoteController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(NoteController.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(NoteController.acceptsGzip("identity, deflate")).isFalse();
+        assertThat(NoteController.acceptsGzip("*")).isTrue();
+        assertThat(NoteController.acceptsGzip("*;q=0")).isFalse();
+        // A named coding takes precedence over the wildcard, in either direction
+        assertThat(NoteController.acceptsGzip("*, gzip;q=0")).isFalse();
+        assertThat(NoteController.acceptsGzip("*;q=0, gzip")).isTrue();
+        assertThat(NoteController.acceptsGzip("gzip;q=abc")).isFalse();
+    }
+
+    @Test
+    void compressesWhenGzipIsAccepted() throws Exception {
+        MvcResult result = export("gzip, deflate");
+
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(result.getResponse().getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gunzip(result.getResponse().getContentAsByteArray()).lines()).hasSize(3);
+    }
+
+    @Test
+    void sendsPlainTextWhenGzipIsRefused() throws Exception {
+        MvcResult result = export("gzip;q=0, identity");
+
+        assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(result.getResponse().getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(result.getResponse().getContentAsString(StandardCharsets.UTF_8).lines()).hasSize(3);
+    }
+
+    private MvcResult export(String acceptEncoding) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/notes/export")
+                        .with(user(owner))
+                        .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CONTENT_DISPOSITION))
+                .andReturn();
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
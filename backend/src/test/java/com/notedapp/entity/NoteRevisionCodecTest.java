@@ -0,0 +1,84 @@
+package com.notedapp.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteRevisionCodecTest {
+
+    @Test
+    void snapshotsRoundTrip() {
+        String content = "Groceries 🛒\n" + "milk, bread, eggs\n".repeat(500);
+
+        assertThat(NoteRevisionCodec.decodeSnapshot(NoteRevisionCodec.encodeSnapshot(content))).isEqualTo(content);
+        assertThat(NoteRevisionCodec.decodeSnapshot(NoteRevisionCodec.encodeSnapshot(""))).isEmpty();
+    }
+
+    @Test
+    void deltaFromAnEmptyBase() {
+        assertRoundTrip("", "first words");
+        assertRoundTrip("", "");
+        assertRoundTrip("last words", "");
+    }
+
+    @Test
+    void deltaReplacingTheWholeText() {
+        String base = "abc";
+        String target = "xyz";
+        byte[] delta = NoteRevisionCodec.encodeDelta(base, target);
+
+        // Nothing shared: both varints are zero and the middle is the whole target
+        assertThat(delta.length).isEqualTo(2 + target.length());
+        assertRoundTrip(base, target);
+    }
+
+    @Test
+    void deltaNextToAnEmoji() {
+        // Edits that touch one half of a surrogate pair must keep the pair whole
+        assertRoundTrip("party 😀 time", "party 😃 time");
+        assertRoundTrip("party 😀 time", "party 😀! time");
+        assertRoundTrip("party 😀 time", "party !😀 time");
+        assertRoundTrip("😀", "😀😀");
+        assertRoundTrip("😀😀", "😀");
+        assertRoundTrip("a😀", "a😃");
+    }
+
+    @Test
+    void chainPastTheSnapshotInterval() {
+        int snapshotInterval = 16;
+        List<String> versions = new ArrayList<>();
+        String content = "Draft";
+        for (int i = 0; i < 3 * snapshotInterval + 5; i++) {
+            versions.add(content);
+            content = content + " edit " + i + (i % 5 == 0 ? " 🎉" : "");
+        }
+
+        // Stored as the recorder does: a snapshot every interval revisions, deltas in between
+        byte[] snapshot = null;
+        List<byte[]> deltas = new ArrayList<>();
+        for (int revision = 0; revision < versions.size(); revision++) {
+            if (revision % snapshotInterval == 0) {
+                snapshot = NoteRevisionCodec.encodeSnapshot(versions.get(revision));
+                deltas.clear();
+            } else {
+                deltas.add(NoteRevisionCodec.encodeDelta(versions.get(revision - 1), versions.get(revision)));
+            }
+            assertThat(NoteRevisionCodec.reconstruct(snapshot, deltas)).isEqualTo(versions.get(revision));
+        }
+    }
+
+    @Test
+    void utf8LengthMatchesTheEncoding() {
+        for (String text : List.of("", "plain", "Crème brûlée", "日本語", "party 😀", "lone \uD83D surrogate", "\uDE00")) {
+            assertThat(NoteRevisionCodec.utf8Length(text)).isEqualTo(text.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    private static void assertRoundTrip(String base, String target) {
+        assertThat(NoteRevisionCodec.applyDelta(base, NoteRevisionCodec.encodeDelta(base, target))).isEqualTo(target);
+    }
+}
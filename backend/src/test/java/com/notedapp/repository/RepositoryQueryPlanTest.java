@@ -0,0 +1,410 @@
+package com.notedapp.repository;
+
+import com.notedapp.entity.User;
+import com.notedapp.service.NoteService;
+import com.notedapp.service.impl.DeletedNotePurger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every query method declared on the repositories, the note export and a purge pass against a
+ * seeded MySQL database, then EXPLAINs each statement they sent and fails on a full table scan or a
+ * filesort. New repository methods are picked up automatically; one whose parameters have no sample
+ * value below fails the test until one is added.
+ *
+ * Only runs when queryplan.jdbc-url is set: ./mvnw -Pquery-plans test starts MySQL in a container, or
+ * point it at an existing database with -Dqueryplan.jdbc-url=... -Dqueryplan.username=... The seeded
+ * users are removed afterwards and everything the queries write is rolled back.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=${queryplan.jdbc-url}",
+        "spring.datasource.username=${queryplan.username:test}",
+        "spring.datasource.password=${queryplan.password:test}",
+        "spring.datasource.driver-class-name=${queryplan.driver-class-name:com.mysql.cj.jdbc.Driver}",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "notes.purge.enabled=false",
+        // Several batches, so the keyset condition of the purge is explained with a real cursor
+        "notes.purge.batch-size=100",
+        "notes.purge.pause-ms=0"
+})
+@EnabledIfSystemProperty(named = "queryplan.jdbc-url", matches = ".+")
+class RepositoryQueryPlanTest {
+
+    private static final List<Class<?>> REPOSITORIES =
+            List.of(NoteRepository.class, NoteRevisionRepository.class, UserRepository.class);
+
+    private static final int USERS = 20;
+    // At most MySQL's default cte_max_recursion_depth, which the seeding queries count up with
+    private static final int NOTES_PER_USER = 1000;
+    private static final int REVISED_NOTES = 200;
+    private static final int REVISIONS_PER_NOTE = 20;
+
+    // Single-row id generator tables (V3, V12) are read in full by design
+    private static final Set<String> SCANNABLE_TABLES = Set.of("note_seq", "note_revision_seq");
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteRevisionRepository noteRevisionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private DeletedNotePurger purger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate jdbc;
+    private String prefix;
+    private User user;
+    private Map<String, Object> arguments;
+
+    @TestConfiguration
+    static class RecorderConfig {
+        private static final StatementRecorder RECORDER = new StatementRecorder();
+
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return RECORDER;
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? RECORDER.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        jdbc = new JdbcTemplate(recorder.getTargetDataSource());
+        prefix = "plan-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        // Note ids come from note_seq, not the database
+        long firstNoteId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM notes", Long.class);
+        for (int i = 0; i < USERS; i++) {
+            jdbc.update("INSERT INTO users (username, password, email, role, created_at) VALUES (?, 'x', ?, 'USER', NOW())",
+                    prefix + i, prefix + i + "@example.com");
+            Long userId = jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, prefix + i);
+            // One in ten notes is a tombstone; edits span about six weeks, so some are past the purge retention
+            jdbc.update("INSERT INTO notes (id, title, content, created_at, updated_at, is_deleted, user_id, change_seq, version) " +
+                    "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < ?) " +
+                    "SELECT ? + n, CONCAT('Note ', n), REPEAT('lorem ipsum ', 50), NOW() - INTERVAL n HOUR, " +
+                    "NOW() - INTERVAL n HOUR, n % 10 = 0, ?, ? - n + 1, 0 FROM seq",
+                    NOTES_PER_USER, firstNoteId - 1 + (long) i * NOTES_PER_USER, userId, NOTES_PER_USER);
+            jdbc.update("UPDATE users SET note_change_seq = ? WHERE id = ?", NOTES_PER_USER, userId);
+        }
+        user = userRepository.findByUsername(prefix + 0).orElseThrow();
+
+        long firstRevisionId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM note_revisions", Long.class);
+        jdbc.update("INSERT INTO note_revisions (id, note_id, revision, snapshot_revision, title, payload, content_length, created_at) " +
+                "WITH RECURSIVE seq (k) AS (SELECT 1 UNION ALL SELECT k + 1 FROM seq WHERE k < ?) " +
+                "SELECT ? + ROW_NUMBER() OVER (), n.id, seq.k, (seq.k - 1) DIV 16 * 16 + 1, n.title, X'00', 600, NOW() " +
+                "FROM (SELECT id, title FROM notes WHERE user_id = ? AND is_deleted = 0 ORDER BY id LIMIT ?) n CROSS JOIN seq",
+                REVISIONS_PER_NOTE, firstRevisionId - 1, user.getId(), REVISED_NOTES);
+        jdbc.execute("ANALYZE TABLE users, notes, note_revisions");
+
+        // A keyset cursor some pages into the user's live notes
+        Object[] cursor = jdbc.queryForObject("SELECT id, updated_at FROM notes WHERE user_id = ? AND is_deleted = 0 " +
+                "ORDER BY updated_at DESC, id DESC LIMIT 1 OFFSET 500",
+                (rs, row) -> new Object[]{rs.getLong("id"), rs.getObject("updated_at", LocalDateTime.class)}, user.getId());
+        List<Long> noteIds = jdbc.queryForList("SELECT id FROM notes WHERE user_id = ? ORDER BY id LIMIT 50",
+                Long.class, user.getId());
+        List<Long> revisedIds = jdbc.queryForList("SELECT DISTINCT note_id FROM note_revisions WHERE id >= ? LIMIT 50",
+                Long.class, firstRevisionId);
+
+        // Sample values by parameter name; Pageable and User parameters are filled in by type
+        arguments = new HashMap<>();
+        arguments.put("id", cursor[0]);
+        arguments.put("ids", noteIds);
+        arguments.put("updatedAt", cursor[1]);
+        arguments.put("userId", user.getId());
+        arguments.put("username", user.getUsername());
+        arguments.put("email", user.getUsername() + "@example.com");
+        arguments.put("apiKeyHash", "0".repeat(64));
+        arguments.put("since", (long) NOTES_PER_USER / 2);
+        arguments.put("afterId", 0L);
+        arguments.put("previewLength", 200);
+        arguments.put("version", 0L);
+        arguments.put("expectedChangeSeq", 1L);
+        arguments.put("changeSeq", (long) NOTES_PER_USER + 1);
+        arguments.put("count", 1);
+        arguments.put("title", "Explained");
+        arguments.put("content", "Explained");
+        arguments.put("compressedContent", null);
+        arguments.put("noteId", revisedIds.get(0));
+        arguments.put("noteIds", revisedIds);
+        arguments.put("revision", (long) REVISIONS_PER_NOTE - 2);
+        arguments.put("before", (long) REVISIONS_PER_NOTE);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        String users = "SELECT id FROM users WHERE username LIKE '" + prefix + "%'";
+        jdbc.update("DELETE FROM note_revisions WHERE note_id IN (SELECT id FROM notes WHERE user_id IN (" + users + "))");
+        jdbc.update("DELETE FROM notes WHERE user_id IN (" + users + ")");
+        jdbc.update("DELETE FROM users WHERE username LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void everyQueryUsesAnIndexWithoutFilesort() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            for (Class<?> repository : REPOSITORIES) {
+                Object bean = repositoryBean(repository);
+                for (Method method : repository.getDeclaredMethods()) {
+                    recorder.record(repository.getSimpleName() + "." + method.getName(),
+                            () -> method.invoke(bean, arguments(method)));
+                }
+            }
+            recorder.record("NoteService.exportNotes",
+                    () -> noteService.exportNotes(user, OutputStream.nullOutputStream()));
+            recorder.record("DeletedNotePurger.purge", purger::purge);
+        });
+
+        Map<String, List<String>> problems = new LinkedHashMap<>();
+        Map<String, Integer> explained = new LinkedHashMap<>();
+        try (Connection connection = recorder.getTargetDataSource().getConnection()) {
+            for (RecordedStatement statement : recorder.statements) {
+                explained.merge(statement.label, 0, Integer::sum);
+                if (!statement.isExplainable()) {
+                    continue;
+                }
+                explained.merge(statement.label, 1, Integer::sum);
+                for (String problem : explain(connection, statement)) {
+                    problems.computeIfAbsent(statement.label, label -> new ArrayList<>()).add(problem);
+                }
+            }
+        }
+
+        for (Class<?> repository : REPOSITORIES) {
+            for (Method method : repository.getDeclaredMethods()) {
+                String label = repository.getSimpleName() + "." + method.getName();
+                assertThat(explained.getOrDefault(label, 0)).as("statements explained for %s", label).isPositive();
+            }
+        }
+        assertThat(explained.getOrDefault("NoteService.exportNotes", 0)).isPositive();
+        assertThat(explained.getOrDefault("DeletedNotePurger.purge", 0)).isPositive();
+        assertThat(problems).as("query plans with a full scan or a filesort").isEmpty();
+    }
+
+    private Object repositoryBean(Class<?> repository) {
+        if (repository == NoteRepository.class) {
+            return noteRepository;
+        }
+        if (repository == NoteRevisionRepository.class) {
+            return noteRevisionRepository;
+        }
+        return userRepository;
+    }
+
+    private Object[] arguments(Method method) {
+        Parameter[] parameters = method.getParameters();
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            Param param = parameter.getAnnotation(Param.class);
+            String name = param != null ? param.value() : parameter.getName();
+            if (User.class.equals(parameter.getType())) {
+                values[i] = user;
+            } else if (parameter.getType().isAssignableFrom(PageRequest.class)) {
+                values[i] = PageRequest.of(0, 51);
+            } else if (arguments.containsKey(name)) {
+                values[i] = arguments.get(name);
+            } else {
+                throw new IllegalStateException("No sample value for parameter '" + name + "' of "
+                        + method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            }
+            if (values[i] instanceof Long && (parameter.getType() == int.class || parameter.getType() == Integer.class)) {
+                values[i] = ((Long) values[i]).intValue();
+            }
+        }
+        return values;
+    }
+
+    private static List<String> explain(Connection connection, RecordedStatement statement) throws Exception {
+        List<String> problems = new ArrayList<>();
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql)) {
+            for (ParameterCall call : statement.parameters) {
+                call.method.invoke(explain, call.args);
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table");
+                    String type = rs.getString("type");
+                    String extra = rs.getString("Extra");
+                    // The target table of INSERT ... SELECT, and temporary tables whose source rows are listed separately
+                    boolean scannable = "INSERT".equals(rs.getString("select_type"))
+                            || table == null || table.startsWith("<") || SCANNABLE_TABLES.contains(table);
+                    if (("ALL".equals(type) && !scannable) || (extra != null && extra.contains("filesort"))) {
+                        problems.add("type=" + type + " table=" + table + " key=" + rs.getString("key")
+                                + " extra=" + extra + " in: " + statement.sql);
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    @FunctionalInterface
+    interface Action {
+        Object run() throws Exception;
+    }
+
+    /** Wraps the application's data source and keeps the statements the test thread sends while recording. */
+    static class StatementRecorder {
+
+        final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+        private volatile DataSource target;
+        private volatile Thread recordingThread;
+        private volatile String label;
+
+        DataSource wrap(DataSource dataSource) {
+            target = dataSource;
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return connection(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return connection(super.getConnection(username, password));
+                }
+            };
+        }
+
+        DataSource getTargetDataSource() {
+            return target;
+        }
+
+        void record(String label, Action action) {
+            this.label = label;
+            this.recordingThread = Thread.currentThread();
+            try {
+                action.run();
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(label + " failed", e.getCause());
+            } catch (Exception e) {
+                throw new IllegalStateException(label + " failed", e);
+            } finally {
+                this.recordingThread = null;
+            }
+        }
+
+        private Connection connection(Connection target) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        if (method.getName().equals("prepareStatement") && Thread.currentThread() == recordingThread) {
+                            return statement((PreparedStatement) result, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement statement(PreparedStatement target, String sql) {
+            String statementLabel = label;
+            List<ParameterCall> parameters = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            parameters.add(new ParameterCall(method, args));
+                        } else if (name.equals("clearParameters")) {
+                            parameters.clear();
+                        } else if ((name.startsWith("execute") || name.equals("addBatch")) && (args == null || args.length == 0)) {
+                            statements.add(new RecordedStatement(statementLabel, sql, List.copyOf(parameters)));
+                        }
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    static class ParameterCall {
+        final Method method;
+        final Object[] args;
+
+        ParameterCall(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+
+    static class RecordedStatement {
+        final String label;
+        final String sql;
+        final List<ParameterCall> parameters;
+
+        RecordedStatement(String label, String sql, List<ParameterCall> parameters) {
+            this.label = label;
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        // Plain INSERT ... VALUES reads no table
+        boolean isExplainable() {
+            String start = sql.stripLeading().toLowerCase(Locale.ROOT);
+            return start.startsWith("select") || start.startsWith("with") || start.startsWith("update")
+                    || start.startsWith("delete") || (start.startsWith("insert") && start.contains(" select "));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.notedapp.search;
+
+import com.notedapp.cache.NoteCacheInvalidation;
+import com.notedapp.cache.NoteCacheInvalidationBus;
+import com.notedapp.dto.note.NoteRequest;
+import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.entity.Note;
+import com.notedapp.entity.NoteContentCodec;
+import com.notedapp.entity.User;
+import com.notedapp.repository.NoteRepository;
+import com.notedapp.repository.UserRepository;
+import com.notedapp.service.NoteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class NoteSearchH2Test {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    @Autowired
+    private NoteSearchIndexSynchronizer synchronizer;
+
+    @Autowired
+    private NoteCacheInvalidationBus bus;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("search-" + UUID.randomUUID().toString().substring(0, 8));
+        user.setPassword("unused");
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void indexIsReadyAfterStartup() {
+        assertThat(searchIndex.isReady()).isTrue();
+    }
+
+    @Test
+    void followsCreatesUpdatesAndDeletes() {
+        NoteResponse groceries = noteService.createNote(user, request("Groceries", "milk, bread and eggs"));
+        NoteResponse trip = noteService.createNote(user, request("Trip to Lisbon", "pack the bread knife"));
+
+        assertThat(ids(noteService.searchNotes(user, "bread", 0, 10)))
+                .containsExactlyInAnyOrder(groceries.getId(), trip.getId());
+        assertThat(ids(noteService.searchNotes(user, "lisb", 0, 10))).containsExactly(trip.getId());
+
+        noteService.updateNote(user, groceries.getId(), request("Groceries", "milk and cheese"));
+        assertThat(ids(noteService.searchNotes(user, "bread", 0, 10))).containsExactly(trip.getId());
+        assertThat(ids(noteService.searchNotes(user, "cheese", 0, 10))).containsExactly(groceries.getId());
+
+        noteService.deleteNote(user, trip.getId());
+        assertThat(noteService.searchNotes(user, "bread", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void appliesWritesPublishedByOtherInstances() {
+        NoteResponse created = noteService.createNote(user, request("Plan", "first draft"));
+
+        // Another instance edits the note: the row changes and only its invalidation arrives here
+        Note note = noteRepository.findById(created.getId()).orElseThrow();
+        note.setContent("second draft");
+        note.setChangeSeq(note.getChangeSeq() + 1);
+        noteRepository.saveAndFlush(note);
+        bus.publish(new NoteCacheInvalidation("other-instance", NoteCacheInvalidation.Scope.NOTE,
+                user.getId(), created.getId()));
+        synchronizer.flush();
+
+        assertThat(ids(noteService.searchNotes(user, "second", 0, 10))).containsExactly(created.getId());
+        assertThat(noteService.searchNotes(user, "first", 0, 10)).isEmpty();
+
+        // ...then deletes it in a batch, which invalidates the whole user
+        note = noteRepository.findById(created.getId()).orElseThrow();
+        note.setDeleted(true);
+        noteRepository.saveAndFlush(note);
+        bus.publish(new NoteCacheInvalidation("other-instance", NoteCacheInvalidation.Scope.USER,
+                user.getId(), null));
+        synchronizer.flush();
+
+        assertThat(searchIndex.indexedChangeSeq(user.getId(), created.getId())).isNull();
+    }
+
+    @Test
+    void appliesRemoteWritesStoredWithAnEarlierTimestamp() {
+        NoteResponse created = noteService.createNote(user, request("Plan", "local draft"));
+
+        // MySQL keeps whole seconds, so the other instance's later edit can carry an earlier updated_at
+        jdbcTemplate.update("UPDATE notes SET content = ?, updated_at = ?, change_seq = change_seq + 1 WHERE id = ?",
+                "remote draft", created.getUpdatedAt().minusSeconds(1), created.getId());
+        bus.publish(new NoteCacheInvalidation("other-instance", NoteCacheInvalidation.Scope.USER,
+                user.getId(), null));
+        synchronizer.flush();
+
+        assertThat(ids(noteService.searchNotes(user, "remote", 0, 10))).containsExactly(created.getId());
+        assertThat(noteService.searchNotes(user, "local", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void searchesTheDatabaseUntilTheIndexIsReady() {
+        NoteContentCodec.configure(true, 1000, 200);
+        try {
+            NoteResponse compressed = noteService.createNote(user, request("Archive", "filler ".repeat(300) + "needle"));
+            assertThat(noteRepository.findById(compressed.getId()).orElseThrow().isContentCompressed()).isTrue();
+            NoteResponse plain = noteService.createNote(user, request("Needle in the title", "short"));
+            NoteResponse percent = noteService.createNote(user, request("Discount", "50% off"));
+            noteService.createNote(user, request("Other", "nothing to see"));
+
+            ReflectionTestUtils.setField(searchIndex, "ready", false);
+            assertThat(ids(noteService.searchNotes(user, "NEEDLE", 0, 10)))
+                    .containsExactlyInAnyOrder(compressed.getId(), plain.getId());
+            assertThat(noteService.searchNotes(user, "needle", 0, 1)).hasSize(1);
+            assertThat(noteService.searchNotes(user, "needle", 1, 1)).hasSize(1);
+            assertThat(noteService.searchNotes(user, "needle", 2, 1)).isEmpty();
+            assertThat(ids(noteService.searchNotes(user, "0%", 0, 10))).containsExactly(percent.getId());
+            assertThat(noteService.searchNotes(user, "_", 0, 10)).isEmpty();
+        } finally {
+            ReflectionTestUtils.setField(searchIndex, "ready", true);
+            NoteContentCodec.configure(false, 4096, 200);
+        }
+    }
+
+    @Test
+    void ignoresItsOwnInvalidations() {
+        NoteResponse created = noteService.createNote(user, request("Local", "written here"));
+        Long indexedChangeSeq = searchIndex.indexedChangeSeq(user.getId(), created.getId());
+
+        synchronizer.flush();
+
+        assertThat(searchIndex.indexedChangeSeq(user.getId(), created.getId())).isEqualTo(indexedChangeSeq);
+    }
+
+    private static NoteRequest request(String title, String content) {
+        NoteRequest request = new NoteRequest();
+        request.setTitle(title);
+        request.setContent(content);
+        return request;
+    }
+
+    private static List<Long> ids(List<NoteResponse> notes) {
+        return notes.stream().map(NoteResponse::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,103 @@
+package com.notedapp.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteSearchIndexTest {
+
+    private static final Long USER = 1L;
+
+    private NoteSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NoteSearchIndex();
+        ReflectionTestUtils.setField(index, "maxPrefixExpansions", 64);
+    }
+
+    @Test
+    void tokenizeNormalizesCaseAndDiacritics() {
+        assertThat(NoteSearchIndex.tokenize("Crème Brûlée, 2x!")).containsExactly("creme", "brulee", "2x");
+    }
+
+    @Test
+    void requiresAllTermsAndRanksTitleHitsFirst() {
+        index.index(USER, 1L, "Groceries", "milk and bread for the week", 1);
+        index.index(USER, 2L, "Milk run", "bread too", 1);
+        index.index(USER, 3L, "Bread recipe", "flour, water, salt", 1);
+        index.markReady();
+
+        assertThat(index.search(USER, "milk bread", 0, 10)).containsExactly(2L, 1L);
+        assertThat(index.search(USER, "bread", 0, 10)).first().isEqualTo(3L);
+        assertThat(index.search(USER, "milk cheese", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void matchesTheLastTermAsPrefixOnlyWhileTyping() {
+        index.index(USER, 1L, "Project kickoff", "agenda", 1);
+        index.markReady();
+
+        assertThat(index.search(USER, "proj", 0, 10)).containsExactly(1L);
+        assertThat(index.search(USER, "proj ", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void pagesThroughRankedHits() {
+        for (long id = 1; id <= 25; id++) {
+            index.index(USER, id, "Note " + id, "shared " + "word ".repeat((int) id), 1);
+        }
+        index.markReady();
+
+        assertThat(index.search(USER, "shared", 0, 10)).hasSize(10);
+        assertThat(index.search(USER, "shared", 20, 10)).hasSize(5);
+        assertThat(index.search(USER, "shared", 0, 10)).doesNotContainAnyElementsOf(index.search(USER, "shared", 10, 10));
+    }
+
+    @Test
+    void keepsUsersApart() {
+        index.index(1L, 1L, "Secret plan", "", 1);
+        index.index(2L, 2L, "Public plan", "", 1);
+        index.markReady();
+
+        assertThat(index.search(1L, "plan", 0, 10)).containsExactly(1L);
+        assertThat(index.search(3L, "plan", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void replacesAndRemovesNotes() {
+        index.index(USER, 1L, "Draft", "alpha", 1);
+        index.index(USER, 1L, "Draft", "beta", 2);
+        index.markReady();
+
+        assertThat(index.search(USER, "alpha", 0, 10)).isEmpty();
+        assertThat(index.search(USER, "beta", 0, 10)).containsExactly(1L);
+
+        index.remove(USER, 1L);
+        assertThat(index.search(USER, "beta", 0, 10)).isEmpty();
+        assertThat(index.indexedChangeSeq(USER, 1L)).isNull();
+    }
+
+    @Test
+    void ignoresVersionsOlderThanTheIndexedOne() {
+        index.index(USER, 1L, "Draft", "edited", 2);
+        index.restore(USER, 1L, "Draft", "original", 1);
+
+        assertThat(index.search(USER, "edited", 0, 10)).containsExactly(1L);
+        assertThat(index.search(USER, "original", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildDoesNotRestoreNotesDeletedWhileItRuns() {
+        // The rebuild read note 1 as live, then it was deleted before the rebuild got to index it
+        index.remove(USER, 1L);
+        index.restore(USER, 1L, "Gone", "deleted meanwhile", 1);
+        index.restore(USER, 2L, "Kept", "still here", 1);
+        index.markReady();
+
+        assertThat(index.search(USER, "deleted", 0, 10)).isEmpty();
+        assertThat(index.search(USER, "still", 0, 10)).containsExactly(2L);
+    }
+}
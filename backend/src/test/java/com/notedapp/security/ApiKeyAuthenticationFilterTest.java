@@ -0,0 +1,99 @@
+package com.notedapp.security;
+
+import com.notedapp.entity.User;
+import com.notedapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "security.api-key.lookup-limit.burst=3",
+        "security.api-key.cache.negative-max-size=2"
+})
+@ActiveProfiles("h2")
+class ApiKeyAuthenticationFilterTest {
+
+    @Autowired
+    private ApiKeyAuthenticationFilter filter;
+
+    @Autowired
+    private ApiKeyPrincipalCache principalCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String apiKey;
+
+    @BeforeEach
+    void setUp() {
+        apiKey = "key-" + UUID.randomUUID() + UUID.randomUUID();
+        User user = new User();
+        user.setUsername("apikey-" + UUID.randomUUID().toString().substring(0, 8));
+        user.setPassword("unused");
+        user.setRole(User.Role.USER);
+        user.setApiKeyHash(ApiKeyHasher.hash(apiKey));
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void throttlesKeyLookupsPerAddressOnceTheBurstIsUsed() throws Exception {
+        String address = randomAddress();
+        assertThat(send(apiKey, address).getStatus()).isEqualTo(200);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+        SecurityContextHolder.clearContext();
+
+        assertThat(send(randomKey(), address).getStatus()).isEqualTo(200);
+        assertThat(send(randomKey(), address).getStatus()).isEqualTo(200);
+        MockHttpServletResponse refused = send(randomKey(), address);
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader("Retry-After")).isNotNull();
+
+        // Cached keys need no lookup, and other addresses have their own allowance
+        assertThat(send(apiKey, address).getStatus()).isEqualTo(200);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
+        assertThat(send(randomKey(), randomAddress()).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void unknownKeysDoNotEvictValidPrincipals() throws Exception {
+        send(apiKey, randomAddress());
+        for (int i = 0; i < 10; i++) {
+            send(randomKey(), randomAddress());
+        }
+
+        assertThat(principalCache.get(ApiKeyHasher.hash(apiKey))).isPresent();
+    }
+
+    private MockHttpServletResponse send(String key, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/notes");
+        request.addHeader(ApiKeyAuthenticationFilter.HEADER, key);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static String randomKey() {
+        return UUID.randomUUID().toString() + UUID.randomUUID();
+    }
+
+    private static String randomAddress() {
+        return "10." + (int) (Math.random() * 255) + "." + (int) (Math.random() * 255) + "." + (int) (Math.random() * 255);
+    }
+}
@@ -0,0 +1,114 @@
+package com.notedapp.service;
+
+import com.notedapp.entity.User;
+import com.notedapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Exports more note text than the JVM's heap can hold, which only succeeds if the export streams.
+ * Runs in its own surefire execution with -Xmx128m. The data lives in a file-backed H2 database with
+ * a small page cache so it does not count against the heap itself, and lazy query execution makes H2
+ * hand out rows as they are read, as Connector/J does with the production fetch size.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/export-low-memory/krabbel;"
+        + "MODE=MySQL;DATABASE_TO_LOWER=TRUE;LAZY_QUERY_EXECUTION=TRUE;CACHE_SIZE=8192")
+@ActiveProfiles("h2")
+class NoteExportLowMemoryTest {
+
+    private static final String[] WORDS = {
+            "meeting", "project", "idea", "todo", "review", "budget", "travel", "recipe", "draft", "summary",
+            "release", "invoice", "garden", "reading", "workout", "design", "backend", "frontend", "holiday"
+    };
+    private static final int CONTENT_LENGTH = 64 * 1024;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportsMoreThanTheHeapHolds() throws Exception {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        assumeTrue(maxHeap <= 256L * 1024 * 1024, "needs a small heap, see the low-memory-tests surefire execution");
+
+        User user = new User();
+        user.setUsername("export-low-memory");
+        user.setPassword("unused");
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+
+        // Twice the heap in note text, written straight to the table so nothing is cached on the way in
+        int notes = (int) (2 * maxHeap / CONTENT_LENGTH) + 1;
+        seed(user.getId(), notes);
+
+        CountingOutputStream out = new CountingOutputStream();
+        long exported = noteService.exportNotes(user, out);
+
+        assertThat(exported).isEqualTo(notes);
+        assertThat(out.lines).isEqualTo(notes);
+        assertThat(out.bytes).isGreaterThan(maxHeap);
+    }
+
+    private void seed(Long userId, int notes) {
+        Random random = new Random(42);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 1; i <= notes; i++) {
+            batch.add(new Object[]{1_000_000L + i, userId, "note " + i, content(random), now, now, i});
+            if (batch.size() == 100 || i == notes) {
+                jdbcTemplate.batchUpdate("INSERT INTO notes (id, user_id, title, content, created_at, updated_at, " +
+                        "is_deleted, change_seq, version) VALUES (?, ?, ?, ?, ?, ?, FALSE, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static String content(Random random) {
+        StringBuilder text = new StringBuilder(CONTENT_LENGTH + 16);
+        while (text.length() < CONTENT_LENGTH) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.substring(0, CONTENT_LENGTH);
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
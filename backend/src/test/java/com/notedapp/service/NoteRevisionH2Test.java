@@ -0,0 +1,70 @@
+package com.notedapp.service;
+
+import com.notedapp.dto.note.NoteRequest;
+import com.notedapp.dto.note.NoteResponse;
+import com.notedapp.entity.User;
+import com.notedapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "notes.revisions.snapshot-interval=4")
+@ActiveProfiles("h2")
+class NoteRevisionH2Test {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRevisionService revisionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rebuildsEveryRevisionOfAChainPastTheSnapshotInterval() {
+        User user = new User();
+        user.setUsername("revisions-" + UUID.randomUUID().toString().substring(0, 8));
+        user.setPassword("unused");
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+
+        String content = "Shopping list 🛒\n" + "- milk\n".repeat(50);
+        NoteResponse note = noteService.createNote(user, request(content));
+        Map<Long, String> versions = new LinkedHashMap<>(Map.of(note.getVersion(), content));
+        for (int i = 0; i < 10; i++) {
+            content = content.replace("🛒", "🛒" + i);
+            note = noteService.updateNote(user, note.getId(), request(content));
+            versions.put(note.getVersion(), content);
+        }
+
+        // One version per update, or the chain would have gaps
+        assertThat(versions.keySet()).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        for (Map.Entry<Long, String> version : versions.entrySet()) {
+            assertThat(revisionService.getRevision(user, note.getId(), version.getKey()).orElseThrow().getContent())
+                    .isEqualTo(version.getValue());
+        }
+        Integer snapshots = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM note_revisions WHERE note_id = ? AND snapshot_revision = revision",
+                Integer.class, note.getId());
+        assertThat(snapshots).isEqualTo(3);
+    }
+
+    private static NoteRequest request(String content) {
+        NoteRequest request = new NoteRequest();
+        request.setTitle("Shopping");
+        request.setContent(content);
+        return request;
+    }
+}
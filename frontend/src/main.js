@@ -22,6 +22,11 @@ axios.interceptors.request.use(
     if (token) {
       config.headers.Authorization = `Bearer ${token}`
     }
+    // Lets whichever backend instance serves the request read this tab's latest write
+    const lastWrite = sessionStorage.getItem('lastWritePosition')
+    if (lastWrite) {
+      config.headers['Last-Write-Position'] = lastWrite
+    }
     return config
   },
   error => {
@@ -29,9 +34,15 @@ axios.interceptors.request.use(
   }
 )
 
-// Add response interceptor to handle authentication errors
+// Add response interceptor to keep the last write position and handle authentication errors
 axios.interceptors.response.use(
-  response => response,
+  response => {
+    const lastWrite = response.headers['last-write-position']
+    if (lastWrite) {
+      sessionStorage.setItem('lastWritePosition', lastWrite)
+    }
+    return response
+  },
   error => {
     if (error.response && error.response.status === 401) {
       localStorage.removeItem('token')
@@ -0,0 +1,67 @@
+#!/bin/bash
+
+# Compares platform-thread and virtual-thread execution of the note endpoints on in-memory H2
+# Builds the backend with the Java 21 profile, starts it once per mode, seeds notes through the
+# batch API and drives each endpoint with hey (https://github.com/rakyll/hey).
+# Requirements: Java 21 on PATH, hey, curl, jq
+
+PORT="${PORT:-18080}"
+DURATION="${DURATION:-30s}"
+CONCURRENCY="${CONCURRENCY:-200}"
+SEED_BATCHES="${SEED_BATCHES:-20}"   # 500 notes per batch
+BASE_URL="http://localhost:$PORT"
+
+cd "$(dirname "$0")/../backend" || exit 1
+
+echo "Building backend with Java 21 profile..."
+./mvnw -q -Pjava21 clean package -DskipTests || exit 1
+JAR=$(ls target/*.jar | head -n 1)
+
+start_app() {
+  java -jar "$JAR" --spring.profiles.active="$1" --server.port="$PORT" > "target/benchmark-$2.log" 2>&1 &
+  APP_PID=$!
+  for _ in $(seq 1 60); do
+    curl -sf "$BASE_URL/api/health/status" > /dev/null && return 0
+    sleep 1
+  done
+  echo "Application did not start, see target/benchmark-$2.log"
+  kill $APP_PID
+  exit 1
+}
+
+seed_notes() {
+  TOKEN=$(curl -s -X POST "$BASE_URL/api/auth/login" -H "Content-Type: application/json" \
+    -d '{"username":"user","password":"user123"}' | jq -r '.token')
+  OPERATIONS=$(jq -nc '[range(500) | {type: "CREATE", title: "Benchmark note \(.)", content: ("lorem ipsum dolor sit amet " * 40)}]')
+  for _ in $(seq 1 "$SEED_BATCHES"); do
+    curl -s -X POST "$BASE_URL/api/notes/batch" -H "Authorization: Bearer $TOKEN" \
+      -H "Content-Type: application/json" -d "{\"operations\": $OPERATIONS}" > /dev/null
+  done
+  NOTE_ID=$(curl -s "$BASE_URL/api/notes/summaries?limit=1" -H "Authorization: Bearer $TOKEN" | jq -r '.notes[0].id')
+}
+
+run_load() {
+  OUTPUT=$(hey -z "$DURATION" -c "$CONCURRENCY" -H "Authorization: Bearer $TOKEN" "$BASE_URL$2")
+  RPS=$(echo "$OUTPUT" | awk '/Requests\/sec/ {print $2}')
+  P99=$(echo "$OUTPUT" | awk '/99%% in/ {print $3 * 1000}')
+  printf "%-10s %-28s %12s %12s\n" "$1" "$2" "$RPS" "$P99"
+}
+
+RESULTS=()
+for MODE in platform virtual; do
+  PROFILES="h2"
+  [ "$MODE" = "virtual" ] && PROFILES="h2,virtual"
+  echo "Starting application in $MODE mode ($PROFILES)..."
+  start_app "$PROFILES" "$MODE"
+  seed_notes
+  RESULTS+=("$(run_load "$MODE" "/api/notes/summaries?limit=50")")
+  RESULTS+=("$(run_load "$MODE" "/api/notes?limit=50")")
+  RESULTS+=("$(run_load "$MODE" "/api/notes/$NOTE_ID")")
+  RESULTS+=("$(run_load "$MODE" "/api/notes/search?keyword=lorem")")
+  kill $APP_PID
+  wait $APP_PID 2> /dev/null
+done
+
+echo ""
+printf "%-10s %-28s %12s %12s\n" "MODE" "ENDPOINT" "REQ/SEC" "P99 (ms)"
+printf '%s\n' "${RESULTS[@]}"
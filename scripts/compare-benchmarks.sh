@@ -0,0 +1,21 @@
+#!/bin/bash
+
+# Compares two JMH JSON result files (e.g. from two releases)
+# Usage: ./compare-benchmarks.sh baseline.json candidate.json
+# Results are produced by: cd backend && ./mvnw -Pbenchmark verify  (-> target/jmh-result.json)
+
+if [ $# -ne 2 ]; then
+  echo "Usage: $0 <baseline.json> <candidate.json>"
+  exit 1
+fi
+
+jq -r -n --slurpfile base "$1" --slurpfile cand "$2" '
+  def key: .benchmark + (if .params then " " + (.params | to_entries | map("\(.key)=\(.value)") | join(",")) else "" end);
+  ($base[0] | map({key: key, value: .primaryMetric}) | from_entries) as $b
+  | $cand[0][]
+  | key as $k
+  | select($b[$k] != null)
+  | [$k, .primaryMetric.scoreUnit, $b[$k].score, .primaryMetric.score, ((.primaryMetric.score - $b[$k].score) / $b[$k].score * 100)]
+  | "\(.[0] | sub("com.notedapp.benchmark."; ""))\t\(.[1])\t\(.[2] * 100 | round / 100)\t\(.[3] * 100 | round / 100)\t\(.[4] * 10 | round / 10)%"
+' | awk -F'\t' 'BEGIN { printf "%-70s %-8s %14s %14s %9s\n", "BENCHMARK", "UNIT", "BASELINE", "CANDIDATE", "CHANGE" }
+                { printf "%-70s %-8s %14s %14s %9s\n", $1, $2, $3, $4, $5 }'
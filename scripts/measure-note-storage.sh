@@ -0,0 +1,32 @@
+#!/bin/bash
+
+# Reports how many bytes the notes table holds for note bodies, split into plain and compressed rows,
+# plus the InnoDB data size. Run before and after enabling notes.storage.compression.enabled (and
+# letting the backfill finish) to see the effect on bytes read by list/get queries.
+# Requires the mysql client.
+
+DB_HOST="${DB_HOST:-localhost}"
+DB_PORT="${DB_PORT:-3306}"
+DB_NAME="${DB_NAME:-krabbeldb}"
+DB_USER="${MYSQL_USERNAME:-testuser}"
+DB_PASSWORD="${MYSQL_PASSWORD:-password}"
+
+run_sql() {
+  mysql -h "$DB_HOST" -P "$DB_PORT" -u "$DB_USER" -p"$DB_PASSWORD" -t "$DB_NAME" -e "$1"
+}
+
+echo "Note body storage:"
+run_sql "SELECT content_compressed IS NOT NULL AS compressed,
+                COUNT(*) AS notes,
+                SUM(LENGTH(content)) AS inline_bytes,
+                SUM(COALESCE(LENGTH(content_compressed), 0)) AS compressed_bytes,
+                ROUND(AVG(LENGTH(content) + COALESCE(LENGTH(content_compressed), 0))) AS avg_row_body_bytes
+         FROM notes GROUP BY content_compressed IS NOT NULL;"
+
+echo "Table size:"
+run_sql "ANALYZE TABLE notes;" > /dev/null
+run_sql "SELECT table_rows, data_length, index_length
+         FROM information_schema.tables WHERE table_schema = '$DB_NAME' AND table_name = 'notes';"
+
+echo "InnoDB bytes read so far (compare before/after a load test run):"
+run_sql "SHOW GLOBAL STATUS WHERE Variable_name IN ('Innodb_data_read', 'Innodb_pages_read', 'Innodb_buffer_pool_read_requests');"